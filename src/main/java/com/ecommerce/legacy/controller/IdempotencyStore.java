@@ -0,0 +1,226 @@
+package com.ecommerce.legacy.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.collections.map.LRUMap;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of requests sent with an {@code Idempotency-Key} header, so a client retry
+ * gets the original response instead of running the request again.
+ *
+ * The first request with a key runs; any duplicate that arrives while it is still running waits for it
+ * and shares its response, and later duplicates are answered from memory until the entry expires. A
+ * duplicate waits at most the configured time and is then told with 409 that the request is still in
+ * progress, so a stuck request cannot pile up waiting threads. The
+ * response is kept as the JSON it was rendered to, so every caller gets the same bytes without touching
+ * the entities again. Successful responses and client errors are kept; server errors and concurrent
+ * modification conflicts are handed to the callers already waiting and then forgotten, so a retry runs
+ * afresh. A key reused for a different request is refused with 422. Entries are bounded in number and
+ * evicted least-recently-used; evicting a key whose request is still running lets a later duplicate run.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long waitMillis;
+    private final LRUMap entries;
+
+    private long executions;
+    private long replays;
+    private long coalesced;
+    private long mismatches;
+    private long evictions;
+    private long timeouts;
+
+    @Autowired
+    public IdempotencyStore(ObjectMapper objectMapper,
+                            @Value("${idempotency.max-keys:10000}") int maxSize,
+                            @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${idempotency.wait-millis:30000}") long waitMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Idempotency store size must be greater than zero");
+        }
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("Idempotency TTL must be greater than zero");
+        }
+        if (waitMillis <= 0) {
+            throw new IllegalArgumentException("Idempotency wait must be greater than zero");
+        }
+        this.objectMapper = objectMapper;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.waitMillis = waitMillis;
+        this.entries = new LRUMap(maxSize) {
+            @Override
+            protected boolean removeLRU(LinkEntry entry) {
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Runs {@code action} once per key. Without a key the action simply runs. {@code fingerprint}
+     * identifies the request the key was first used for, e.g. its method, path and parameters.
+     */
+    public ResponseEntity<?> execute(String key, String fingerprint, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (StringUtils.isBlank(key) || key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = (Entry) entries.get(key);
+            if (entry == null || entry.isExpired()) {
+                entry = new Entry(fingerprint, System.nanoTime() + ttlNanos);
+                entries.put(key, entry);
+                executions++;
+                owner = true;
+            } else if (!entry.fingerprint.equals(fingerprint)) {
+                mismatches++;
+                return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+            } else if (entry.response.isDone()) {
+                replays++;
+            } else {
+                coalesced++;
+            }
+        }
+
+        if (!owner) {
+            Snapshot snapshot = await(entry);
+            if (snapshot == null) {
+                return error(HttpStatus.CONFLICT, "Request with this " + HEADER + " is still in progress");
+            }
+            return replay(snapshot);
+        }
+        Snapshot snapshot;
+        try {
+            snapshot = render(action.get());
+        } catch (RuntimeException e) {
+            forget(key, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+        if (snapshot.status.is5xxServerError() || snapshot.status == HttpStatus.CONFLICT) {
+            forget(key, entry);
+        }
+        entry.response.complete(snapshot);
+        return snapshot.toResponse(Collections.emptyMap());
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("executions", executions);
+        stats.put("replays", replays);
+        stats.put("coalesced", coalesced);
+        stats.put("mismatches", mismatches);
+        stats.put("evictions", evictions);
+        stats.put("timeouts", timeouts);
+        return stats;
+    }
+
+    private synchronized void forget(String key, Entry entry) {
+        if (entries.get(key) == entry) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Waits for the owner's response, or returns null if it is not ready in time.
+     */
+    private Snapshot await(Entry entry) {
+        try {
+            return entry.response.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            synchronized (this) {
+                timeouts++;
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ResponseEntity<?> replay(Snapshot snapshot) {
+        return snapshot.toResponse(Collections.singletonMap(REPLAYED_HEADER, "true"));
+    }
+
+    private Snapshot render(ResponseEntity<?> response) {
+        try {
+            return new Snapshot(response.getStatusCode(), objectMapper.writeValueAsBytes(response.getBody()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render response for replay", e);
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Collections.singletonMap("error", message));
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final long expiresAtNanos;
+        private final CompletableFuture<Snapshot> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long expiresAtNanos) {
+            this.fingerprint = fingerprint;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+
+    private static final class Snapshot {
+        private final HttpStatus status;
+        private final byte[] body;
+
+        private Snapshot(HttpStatus status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private ResponseEntity<byte[]> toResponse(Map<String, String> headers) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON);
+            headers.forEach((name, value) -> builder.header(name, value));
+            return builder.body(body);
+        }
+    }
+}
@@ -1,57 +1,110 @@
 package com.ecommerce.legacy.controller;
 
+import com.ecommerce.legacy.model.BulkStatusRequest;
+import com.ecommerce.legacy.model.FulfilmentRequest;
 import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.OrderHistoryEntry;
+import com.ecommerce.legacy.model.OrderItemRequest;
+import com.ecommerce.legacy.service.ExportService;
+import com.ecommerce.legacy.service.FulfilmentPipeline;
+import com.ecommerce.legacy.service.KeysetCursor;
 import com.ecommerce.legacy.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.persistence.EntityNotFoundException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final String SUMMARY_VIEW = "summary";
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final OrderService orderService;
+    private final ExportService exportService;
+    private final FulfilmentPipeline fulfilmentPipeline;
+    private final IdempotencyStore idempotencyStore;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, ExportService exportService,
+                           FulfilmentPipeline fulfilmentPipeline, IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
+        this.exportService = exportService;
+        this.fulfilmentPipeline = fulfilmentPipeline;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestParam Long userId, @RequestParam String shippingAddress) {
-        try {
-            Order createdOrder = orderService.createOrder(userId, shippingAddress);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
-        } catch (EntityNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
-        }
+    public ResponseEntity<?> createOrder(@RequestParam Long userId, @RequestParam String shippingAddress,
+                                         @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        String fingerprint = "POST /orders?userId=" + userId + "&shippingAddress=" + shippingAddress;
+        return idempotencyStore.execute(idempotencyKey, fingerprint, () -> {
+            try {
+                Order createdOrder = orderService.createOrder(userId, shippingAddress);
+                return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+            } catch (EntityNotFoundException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+            }
+        });
     }
 
     @PostMapping("/{orderId}/items")
     public ResponseEntity<?> addItemToOrder(
             @PathVariable Long orderId,
             @RequestParam Long productId,
-            @RequestParam Integer quantity) {
+            @RequestParam Integer quantity,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        String fingerprint = "POST /orders/" + orderId + "/items?productId=" + productId + "&quantity=" + quantity;
+        return idempotencyStore.execute(idempotencyKey, fingerprint, () -> {
+            try {
+                Order updatedOrder = orderService.addItemToOrder(orderId, productId, quantity);
+                return ResponseEntity.ok(updatedOrder);
+            } catch (EntityNotFoundException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+            } catch (OptimisticLockingFailureException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(createErrorResponse("Order was modified concurrently, please try again"));
+            }
+        });
+    }
+
+    @PostMapping("/{orderId}/items/batch")
+    public ResponseEntity<?> addItemsToOrder(@PathVariable Long orderId, @RequestBody List<OrderItemRequest> lines) {
         try {
-            Order updatedOrder = orderService.addItemToOrder(orderId, productId, quantity);
-            return ResponseEntity.ok(updatedOrder);
+            Map<String, Object> result = orderService.addItemsToOrder(orderId, lines);
+            if (!Boolean.TRUE.equals(result.get("added"))) {
+                return ResponseEntity.badRequest().body(result);
+            }
+            return ResponseEntity.ok(result);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalArgumentException | IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
@@ -66,14 +119,27 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
+    public ResponseEntity<List<?>> getAllOrders(@RequestParam(defaultValue = "full") String view) {
+        if (SUMMARY_VIEW.equals(view)) {
+            return ResponseEntity.ok(orderService.getAllOrderSummaries());
+        }
         List<Order> orders = orderService.getAllOrders();
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        StreamingResponseBody body = exportService::exportOrders;
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getOrdersByUser(@PathVariable Long userId) {
+    public ResponseEntity<?> getOrdersByUser(@PathVariable Long userId,
+                                             @RequestParam(defaultValue = "full") String view) {
         try {
+            if (SUMMARY_VIEW.equals(view)) {
+                return ResponseEntity.ok(orderService.getOrderSummariesByUser(userId));
+            }
             List<Order> orders = orderService.getOrdersByUser(userId);
             return ResponseEntity.ok(orders);
         } catch (EntityNotFoundException e) {
@@ -95,18 +161,82 @@ public class OrderController {
         }
     }
 
+    @GetMapping("/user/{userId}/cursor")
+    public ResponseEntity<?> getOrdersByUserCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            Slice<Order> orders = orderService.getOrdersByUserAfter(userId, cursor, size);
+            List<Order> content = orders.getContent();
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", content);
+            response.put("numberOfElements", content.size());
+            response.put("hasNext", orders.hasNext());
+            response.put("nextCursor", orders.hasNext()
+                    ? KeysetCursor.after(content.get(content.size() - 1)).encode()
+                    : null);
+            return ResponseEntity.ok(response);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<?> getOrderHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            Slice<OrderHistoryEntry> history = orderService.getOrderHistory(userId, cursor, size);
+            List<OrderHistoryEntry> content = history.getContent();
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", content);
+            response.put("numberOfElements", content.size());
+            response.put("hasNext", history.hasNext());
+            response.put("nextCursor", history.hasNext()
+                    ? KeysetCursor.after(content.get(content.size() - 1)).encode()
+                    : null);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable Order.OrderStatus status) {
+    public ResponseEntity<List<?>> getOrdersByStatus(@PathVariable Order.OrderStatus status,
+                                                     @RequestParam(defaultValue = "full") String view) {
+        if (SUMMARY_VIEW.equals(view)) {
+            return ResponseEntity.ok(orderService.getOrderSummariesByStatus(status));
+        }
         List<Order> orders = orderService.getOrdersByStatus(status);
         return ResponseEntity.ok(orders);
     }
 
+    @PostMapping("/status/bulk")
+    public ResponseEntity<?> bulkUpdateStatus(@RequestBody BulkStatusRequest request) {
+        try {
+            Map<String, Object> result = orderService.bulkUpdateStatus(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/date-range")
-    public ResponseEntity<List<Order>> getOrdersByDateRange(
+    public ResponseEntity<?> getOrdersByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<Order> orders = orderService.getOrdersByDateRange(startDate, endDate);
-        return ResponseEntity.ok(orders);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) Long userId) {
+        // Checked here, since the status is committed as soon as the first order is streamed
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Start date must not be after end date"));
+        }
+        StreamingResponseBody body = out -> exportService.exportOrdersByDateRange(startDate, endDate, status, userId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @PutMapping("/{id}/status")
@@ -118,6 +248,9 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
@@ -130,6 +263,9 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
@@ -142,6 +278,9 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
@@ -154,6 +293,9 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
@@ -166,6 +308,22 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
+        }
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<?> cancelOrders(@RequestBody List<Long> orderIds) {
+        try {
+            List<Map<String, Object>> results = orderService.cancelOrders(orderIds);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
@@ -178,9 +336,67 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Order was modified concurrently, please try again"));
         }
     }
 
+    /**
+     * Queues status transitions for the fulfilment workers and answers at once with one handle per
+     * request line; a line that could not be queued carries the reason instead.
+     */
+    @PostMapping("/fulfilment")
+    public ResponseEntity<?> submitFulfilment(@RequestBody List<FulfilmentRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.badRequest().body(createErrorResponse("At least one transition is required"));
+        }
+        List<Map<String, Object>> results = new ArrayList<>(requests.size());
+        for (FulfilmentRequest request : requests) {
+            Long orderId = request != null ? request.getOrderId() : null;
+            try {
+                results.add(fulfilmentPipeline.submit(orderId, request != null ? request.getStatus() : null).toMap());
+            } catch (IllegalArgumentException | RejectedExecutionException e) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("orderId", orderId);
+                result.put("state", FulfilmentPipeline.State.REJECTED);
+                result.put("error", e.getMessage());
+                results.add(result);
+            }
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(results);
+    }
+
+    @GetMapping("/fulfilment/{handleId}")
+    public ResponseEntity<?> getFulfilment(@PathVariable Long handleId) {
+        FulfilmentPipeline.Handle handle = fulfilmentPipeline.getHandle(handleId);
+        if (handle == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("Fulfilment handle not found with id: " + handleId));
+        }
+        return ResponseEntity.ok(handle.toMap());
+    }
+
+    @GetMapping("/fulfilment/stats")
+    public ResponseEntity<Map<String, Object>> getFulfilmentStats() {
+        return ResponseEntity.ok(fulfilmentPipeline.getStats());
+    }
+
+    @GetMapping("/reservations/stats")
+    public ResponseEntity<Map<String, Object>> getReservationStats() {
+        return ResponseEntity.ok(orderService.getReservationStats());
+    }
+
+    @GetMapping("/idempotency/stats")
+    public ResponseEntity<Map<String, Object>> getIdempotencyStats() {
+        return ResponseEntity.ok(idempotencyStore.getStats());
+    }
+
+    @GetMapping("/conflicts/stats")
+    public ResponseEntity<Map<String, Object>> getConflictStats() {
+        return ResponseEntity.ok(orderService.getConflictStats());
+    }
+
     private Map<String, String> createErrorResponse(String message) {
         Map<String, String> error = new HashMap<>();
         error.put("error", message);
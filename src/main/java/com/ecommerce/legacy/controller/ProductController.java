@@ -1,18 +1,31 @@
 package com.ecommerce.legacy.controller;
 
+import com.ecommerce.legacy.model.AvailabilityRequest;
 import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.ProductSummary;
+import com.ecommerce.legacy.service.ExportService;
+import com.ecommerce.legacy.service.KeysetCursor;
+import com.ecommerce.legacy.service.ProductImportService;
 import com.ecommerce.legacy.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
@@ -22,11 +35,22 @@ import java.util.Map;
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final int MAX_SEARCH_LIMIT = 500;
+    private static final int MAX_PRICE_RANGE_LIMIT = 1000;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ExportService exportService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ExportService exportService) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.exportService = exportService;
     }
 
     @PostMapping
@@ -39,21 +63,64 @@ public class ProductController {
         }
     }
 
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<?> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                            InputStream body) {
+        String format = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? ProductImportService.FORMAT_CSV : ProductImportService.FORMAT_NDJSON;
+        try {
+            Map<String, Object> report = productImportService.importProducts(body, format);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Could not read import body: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<?> getProductsByIds(@RequestParam List<Long> ids) {
+        try {
+            List<Map<String, Object>> products = productService.getProductsByIds(ids);
+            return ResponseEntity.ok(products);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/availability")
+    public ResponseEntity<?> checkAvailability(@RequestBody List<AvailabilityRequest> lines) {
+        try {
+            List<Map<String, Object>> results = productService.checkAvailability(lines);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Long id) {
+    public ResponseEntity<?> getProductById(@PathVariable Long id, WebRequest request) {
         try {
+            if (ResourceVersions.isConditional(request)
+                    && ResourceVersions.isNotModified(request, productService.getProductVersion(id))) {
+                return null;
+            }
             Product product = productService.getProductById(id);
-            return ResponseEntity.ok(product);
+            return ResourceVersions.ok(product.getUpdatedAt()).body(product);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         }
     }
 
     @GetMapping("/sku/{sku}")
-    public ResponseEntity<?> getProductBySku(@PathVariable String sku) {
+    public ResponseEntity<?> getProductBySku(@PathVariable String sku, WebRequest request) {
         try {
+            if (ResourceVersions.isConditional(request)
+                    && ResourceVersions.isNotModified(request, productService.getProductVersionBySku(sku))) {
+                return null;
+            }
             Product product = productService.getProductBySku(sku);
-            return ResponseEntity.ok(product);
+            return ResourceVersions.ok(product.getUpdatedAt()).body(product);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         }
@@ -70,51 +137,112 @@ public class ProductController {
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> products = productService.getProductsPaginated(pageable);
+        Page<ProductSummary> products = productService.getProductSummariesPaginated(pageable);
         
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy) {
+        try {
+            Slice<Product> products = productService.getProductsAfter(null, sortBy, cursor, size);
+            return ResponseEntity.ok(createSliceResponse(products, sortBy));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<Product>> getAllProductsList() {
-        List<Product> products = productService.getAllProducts();
+    public ResponseEntity<List<ProductSummary>> getAllProductsList() {
+        List<ProductSummary> products = productService.getAllProductSummaries();
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = exportService::exportProducts;
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
-        List<Product> products = productService.getProductsByCategory(category);
+    public ResponseEntity<List<ProductSummary>> getProductsByCategory(@PathVariable String category) {
+        List<ProductSummary> products = productService.getProductSummariesByCategory(category);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/category/{category}/paginated")
-    public ResponseEntity<Page<Product>> getProductsByCategoryPaginated(
+    public ResponseEntity<Page<ProductSummary>> getProductsByCategoryPaginated(
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productService.getProductsByCategoryPaginated(category, pageable);
+        Page<ProductSummary> products = productService.getProductSummariesByCategoryPaginated(category, pageable);
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/category/{category}/cursor")
+    public ResponseEntity<?> getProductsByCategoryCursor(
+            @PathVariable String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy) {
+        try {
+            Slice<Product> products = productService.getProductsAfter(category, sortBy, cursor, size);
+            return ResponseEntity.ok(createSliceResponse(products, sortBy));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProductsByName(@RequestParam String name) {
-        List<Product> products = productService.searchProductsByName(name);
+    public ResponseEntity<List<Product>> searchProductsByName(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<Product> products = productService.searchProductsByName(name, Math.min(limit, MAX_SEARCH_LIMIT));
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/price-range")
-    public ResponseEntity<List<Product>> getProductsByPriceRange(
+    public ResponseEntity<?> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
-            @RequestParam BigDecimal maxPrice) {
-        List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice);
-        return ResponseEntity.ok(products);
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice, category,
+                    Math.min(limit, MAX_PRICE_RANGE_LIMIT));
+            return ResponseEntity.ok(products);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<?> getFacetedProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "10") int buckets) {
+        try {
+            Map<String, Object> facets = productService.getFacetedProducts(q, category, minPrice, maxPrice, inStock,
+                    page, size, buckets);
+            return ResponseEntity.ok(facets);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
     }
 
     @GetMapping("/available")
-    public ResponseEntity<List<Product>> getAvailableProducts() {
-        List<Product> products = productService.getAvailableProducts();
+    public ResponseEntity<List<ProductSummary>> getAvailableProducts() {
+        List<ProductSummary> products = productService.getAvailableProducts();
         return ResponseEntity.ok(products);
     }
 
@@ -131,8 +259,11 @@ public class ProductController {
             return ResponseEntity.ok(updatedProduct);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Product was modified concurrently, please try again"));
         }
     }
 
@@ -143,6 +274,40 @@ public class ProductController {
             return ResponseEntity.ok(updatedProduct);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("Product was modified concurrently, please try again"));
+        }
+    }
+
+    @PutMapping("/{id}/hot")
+    public ResponseEntity<?> enableHotStock(@PathVariable Long id, @RequestParam(required = false) Integer counters) {
+        try {
+            return ResponseEntity.ok(productService.enableHotStock(id, counters));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/hot")
+    public ResponseEntity<?> getHotStockStats(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(productService.getHotStockStats(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}/hot")
+    public ResponseEntity<?> disableHotStock(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(productService.disableHotStock(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         }
     }
 
@@ -170,6 +335,38 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    @GetMapping("/journal/stats")
+    public ResponseEntity<Map<String, Object>> getJournalStats() {
+        return ResponseEntity.ok(productService.getJournalStats());
+    }
+
+    @GetMapping("/conflicts/stats")
+    public ResponseEntity<Map<String, Object>> getConflictStats() {
+        return ResponseEntity.ok(productService.getConflictStats());
+    }
+
+    @GetMapping("/journal/discrepancies")
+    public ResponseEntity<List<Map<String, Object>>> getJournalDiscrepancies() {
+        return ResponseEntity.ok(productService.getJournalDiscrepancies());
+    }
+
+    private Map<String, Object> createSliceResponse(Slice<Product> slice, String sortBy) {
+        List<Product> content = slice.getContent();
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", content);
+        response.put("numberOfElements", content.size());
+        response.put("hasNext", slice.hasNext());
+        response.put("nextCursor", slice.hasNext()
+                ? KeysetCursor.after(content.get(content.size() - 1), sortBy).encode()
+                : null);
+        return response;
+    }
+
     private Map<String, String> createErrorResponse(String message) {
         Map<String, String> error = new HashMap<>();
         error.put("error", message);
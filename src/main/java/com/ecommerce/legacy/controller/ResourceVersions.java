@@ -0,0 +1,57 @@
+package com.ecommerce.legacy.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Conditional GET validators derived from an entity's {@code updatedAt} timestamp.
+ */
+final class ResourceVersions {
+
+    private ResourceVersions() {
+    }
+
+    /**
+     * True when the client sent a validator, so looking up the current version up front can pay off.
+     */
+    static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Strong entity tag built from the update time to the microsecond, the precision the database keeps.
+     */
+    static String etag(LocalDateTime updatedAt) {
+        long micros = updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + updatedAt.getNano() / 1_000;
+        return "\"" + micros + "\"";
+    }
+
+    /**
+     * Answers the request with 304 if the client's validators still match {@code updatedAt}.
+     * A null version means the entity is unknown here and the request is served normally.
+     */
+    static boolean isNotModified(WebRequest request, LocalDateTime updatedAt) {
+        return updatedAt != null && request.checkNotModified(etag(updatedAt), lastModified(updatedAt));
+    }
+
+    /**
+     * A 200 response carrying the validators for {@code updatedAt}, when it is known.
+     */
+    static ResponseEntity.BodyBuilder ok(LocalDateTime updatedAt) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (updatedAt != null) {
+            builder.eTag(etag(updatedAt)).lastModified(lastModified(updatedAt));
+        }
+        return builder;
+    }
+
+    static long lastModified(LocalDateTime updatedAt) {
+        return updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,11 +1,13 @@
 package com.ecommerce.legacy.controller;
 
 import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.model.UserSummary;
 import com.ecommerce.legacy.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
@@ -35,10 +37,14 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getUserById(@PathVariable Long id) {
+    public ResponseEntity<?> getUserById(@PathVariable Long id, WebRequest request) {
         try {
+            if (ResourceVersions.isConditional(request)
+                    && ResourceVersions.isNotModified(request, userService.getUserVersion(id))) {
+                return null;
+            }
             User user = userService.getUserById(id);
-            return ResponseEntity.ok(user);
+            return ResourceVersions.ok(user.getUpdatedAt()).body(user);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
         }
@@ -65,8 +71,8 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<List<UserSummary>> getAllUsers() {
+        List<UserSummary> users = userService.getAllUserSummaries();
         return ResponseEntity.ok(users);
     }
 
@@ -0,0 +1,34 @@
+package com.ecommerce.legacy.model;
+
+/**
+ * One line of a bulk availability check: a product and the quantity wanted.
+ */
+public class AvailabilityRequest {
+
+    private Long productId;
+    private Integer quantity;
+
+    public AvailabilityRequest() {
+    }
+
+    public AvailabilityRequest(Long productId, Integer quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.legacy.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A bulk status change: the orders to move, given either as a list of ids or as a filter on their
+ * current status and order date, and the status to move them to.
+ */
+public class BulkStatusRequest {
+
+    private List<Long> orderIds;
+    private Order.OrderStatus currentStatus;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Order.OrderStatus targetStatus;
+
+    public BulkStatusRequest() {
+    }
+
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+
+    public Order.OrderStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
+    public void setCurrentStatus(Order.OrderStatus currentStatus) {
+        this.currentStatus = currentStatus;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDateTime endDate) {
+        this.endDate = endDate;
+    }
+
+    public Order.OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(Order.OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.legacy.model;
+
+/**
+ * One status transition pushed by the warehouse: an order and the status it should move to.
+ */
+public class FulfilmentRequest {
+
+    private Long orderId;
+    private Order.OrderStatus status;
+
+    public FulfilmentRequest() {
+    }
+
+    public FulfilmentRequest(Long orderId, Order.OrderStatus status) {
+        this.orderId = orderId;
+        this.status = status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecommerce.legacy.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Exact fixed-point money arithmetic on amounts held as a {@code long} number of cents.
+ *
+ * Amounts only become {@link BigDecimal} where they leave the model, for the database column and
+ * for JSON; everything in between is plain long arithmetic, which does not allocate. Every operation
+ * fails with an {@link ArithmeticException} rather than overflowing.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount to cents, rounding half up as the scale-2 money columns do.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Returns the cost of {@code quantity} units priced at {@code unitPriceCents} each.
+     */
+    public static long lineTotal(long unitPriceCents, int quantity) {
+        return Math.multiplyExact(unitPriceCents, (long) quantity);
+    }
+
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+}
@@ -1,15 +1,24 @@
 package com.ecommerce.legacy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.BatchSize;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_date_id", columnList = "order_date, id"),
+        @Index(name = "idx_orders_user_date_id", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_status_date", columnList = "status, order_date")
+})
 public class Order {
 
     @Id
@@ -25,8 +34,9 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
-    @Column(name = "total_amount", precision = 10, scale = 2)
-    private BigDecimal totalAmount;
+    // Kept up to date as items come and go; the total_amount column is mapped through the property accessors
+    @Transient
+    private long totalCents;
 
     @Column(name = "order_date")
     private LocalDateTime orderDate;
@@ -35,13 +45,17 @@ public class Order {
     private String shippingAddress;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @JsonIgnoreProperties("order")
     private List<OrderItem> orderItems = new ArrayList<>();
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     public Order() {
         this.orderDate = LocalDateTime.now();
         this.status = OrderStatus.PENDING;
-        this.totalAmount = BigDecimal.ZERO;
     }
 
     public Order(User user, String shippingAddress) {
@@ -53,19 +67,31 @@ public class Order {
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
-        calculateTotalAmount();
+        totalCents = Money.add(totalCents, orderItem.lineTotalCents());
+    }
+
+    /**
+     * Adds several items, keeping the total up to date one line at a time.
+     */
+    public void addOrderItems(List<OrderItem> items) {
+        for (OrderItem orderItem : items) {
+            addOrderItem(orderItem);
+        }
     }
 
     public void removeOrderItem(OrderItem orderItem) {
-        orderItems.remove(orderItem);
+        if (orderItems.remove(orderItem)) {
+            totalCents = Money.subtract(totalCents, orderItem.lineTotalCents());
+        }
         orderItem.setOrder(null);
-        calculateTotalAmount();
     }
 
     private void calculateTotalAmount() {
-        this.totalAmount = orderItems.stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long cents = 0;
+        for (OrderItem item : orderItems != null ? orderItems : Collections.<OrderItem>emptyList()) {
+            cents = Money.add(cents, item.lineTotalCents());
+        }
+        this.totalCents = cents;
     }
 
     // Getters and Setters
@@ -93,12 +119,19 @@ public class Order {
         this.status = status;
     }
 
+    @Access(AccessType.PROPERTY)
+    @Column(name = "total_amount", precision = 10, scale = 2)
     public BigDecimal getTotalAmount() {
-        return totalAmount;
+        return Money.toBigDecimal(totalCents);
     }
 
     public void setTotalAmount(BigDecimal totalAmount) {
-        this.totalAmount = totalAmount;
+        this.totalCents = totalAmount == null ? 0 : Money.toCents(totalAmount);
+    }
+
+    @JsonIgnore
+    public long getTotalCents() {
+        return totalCents;
     }
 
     public LocalDateTime getOrderDate() {
@@ -123,6 +156,15 @@ public class Order {
 
     public void setOrderItems(List<OrderItem> orderItems) {
         this.orderItems = orderItems;
+        calculateTotalAmount();
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
     }
 
     public enum OrderStatus {
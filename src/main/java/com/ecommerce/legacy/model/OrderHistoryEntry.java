@@ -0,0 +1,46 @@
+package com.ecommerce.legacy.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of a user's order history: the order's own columns the history page shows, plus its number
+ * of item lines, filled by a constructor expression that aggregates the items in the same query.
+ */
+public class OrderHistoryEntry {
+
+    private final Long id;
+    private final LocalDateTime orderDate;
+    private final Order.OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final long itemCount;
+
+    public OrderHistoryEntry(Long id, LocalDateTime orderDate, Order.OrderStatus status, BigDecimal totalAmount,
+                             Long itemCount) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.itemCount = itemCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+}
@@ -43,6 +43,13 @@ public class OrderItem {
         this.price = price;
     }
 
+    /**
+     * Returns price times quantity in cents.
+     */
+    public long lineTotalCents() {
+        return Money.lineTotal(Money.toCents(price), quantity);
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,51 @@
+package com.ecommerce.legacy.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of an order's own columns, without its user or items, filled by a constructor expression.
+ */
+public class OrderSummary {
+
+    private final Long id;
+    private final Long userId;
+    private final Order.OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final LocalDateTime orderDate;
+    private final String shippingAddress;
+
+    public OrderSummary(Long id, Long userId, Order.OrderStatus status, BigDecimal totalAmount,
+                        LocalDateTime orderDate, String shippingAddress) {
+        this.id = id;
+        this.userId = userId;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.orderDate = orderDate;
+        this.shippingAddress = shippingAddress;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+}
@@ -1,5 +1,8 @@
 package com.ecommerce.legacy.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.BatchSize;
+
 import javax.persistence.*;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
@@ -9,11 +12,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@BatchSize(size = 100)
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_id", columnList = "category, id"),
+        @Index(name = "idx_products_name_id", columnList = "name, id"),
+        @Index(name = "idx_products_price_id", columnList = "price, id")
+})
 public class Product {
 
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Product name is required")
@@ -32,6 +42,11 @@ public class Product {
     @Column(name = "stock_quantity")
     private Integer stockQuantity;
 
+    // Units held for PENDING orders as of the last reservation checkpoint; the live figure is in memory
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "reserved_quantity")
+    private Integer reservedQuantity;
+
     @NotBlank(message = "Category is required")
     private String category;
 
@@ -48,7 +63,13 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped by every write, including the bulk stock updates, so a stale copy cannot be saved over a newer row
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     public Product() {
+        this.reservedQuantity = 0;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
@@ -109,6 +130,14 @@ public class Product {
         this.stockQuantity = stockQuantity;
     }
 
+    public Integer getReservedQuantity() {
+        return reservedQuantity;
+    }
+
+    public void setReservedQuantity(Integer reservedQuantity) {
+        this.reservedQuantity = reservedQuantity;
+    }
+
     public String getCategory() {
         return category;
     }
@@ -148,4 +177,12 @@ public class Product {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,56 @@
+package com.ecommerce.legacy.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a user for listings, filled by a constructor expression. The password is never selected.
+ */
+public class UserSummary {
+
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public UserSummary(Long id, String username, String email, String firstName, String lastName,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -1,20 +1,34 @@
 package com.ecommerce.legacy.repository;
 
 import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.OrderHistoryEntry;
+import com.ecommerce.legacy.model.OrderSummary;
 import com.ecommerce.legacy.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    String ORDER_SUMMARY = "new com.ecommerce.legacy.model.OrderSummary(o.id, o.user.id, o.status, o.totalAmount, " +
+            "o.orderDate, o.shippingAddress)";
+
     List<Order> findByUser(User user);
 
     Page<Order> findByUser(User user, Pageable pageable);
@@ -24,9 +38,193 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId")
     List<Order> findByUserId(@Param("userId") Long userId);
 
-    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate")
-    List<Order> findByOrderDateBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.status = :status")
     List<Order> findByUserIdAndStatus(@Param("userId") Long userId, @Param("status") Order.OrderStatus status);
+
+    // Fetches everything an order's JSON touches in the same statement: its user, its items and their products
+    String ORDER_DETAIL = "SELECT DISTINCT o FROM Order o JOIN FETCH o.user " +
+            "LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product ";
+
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query(ORDER_DETAIL + "ORDER BY o.id")
+    List<Order> findAllWithDetails();
+
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query(ORDER_DETAIL + "WHERE o.user.id = :userId ORDER BY o.id")
+    List<Order> findByUserIdWithDetails(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query(ORDER_DETAIL + "WHERE o.status = :status ORDER BY o.id")
+    List<Order> findByStatusWithDetails(@Param("status") Order.OrderStatus status);
+
+    @Query("SELECT " + ORDER_SUMMARY + " FROM Order o ORDER BY o.id")
+    List<OrderSummary> findAllSummaries();
+
+    @Query("SELECT " + ORDER_SUMMARY + " FROM Order o WHERE o.user.id = :userId ORDER BY o.id")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT " + ORDER_SUMMARY + " FROM Order o WHERE o.status = :status ORDER BY o.id")
+    List<OrderSummary> findSummariesByStatus(@Param("status") Order.OrderStatus status);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT o FROM Order o JOIN FETCH o.user ORDER BY o.id")
+    Stream<Order> streamAllWithUser();
+
+    // Orders placed in a window of time, oldest first. Each status/user filter combination has its own
+    // query rather than an "IS NULL OR" catch-all, so the planner can use the index that fits it.
+    String ORDER_DATE_WINDOW = "SELECT o FROM Order o JOIN FETCH o.user WHERE o.orderDate >= :from ";
+    String ORDER_DATE_BOUNDS = "SELECT MIN(o.orderDate), MAX(o.orderDate) FROM Order o " +
+            "WHERE o.orderDate BETWEEN :startDate AND :endDate ";
+    String STATUS_FILTER = "AND o.status = :status ";
+    String USER_FILTER = "AND o.user.id = :userId ";
+    String BEFORE_TO = "AND o.orderDate < :to ORDER BY o.orderDate, o.id";
+    String THROUGH_TO = "AND o.orderDate <= :to ORDER BY o.orderDate, o.id";
+
+    /**
+     * Returns the single row {earliest, latest} order date within the range; both are null when it holds no orders.
+     */
+    @Query(ORDER_DATE_BOUNDS)
+    List<Object[]> findOrderDateBounds(@Param("startDate") LocalDateTime startDate,
+                                       @Param("endDate") LocalDateTime endDate);
+
+    @Query(ORDER_DATE_BOUNDS + STATUS_FILTER)
+    List<Object[]> findOrderDateBoundsByStatus(@Param("startDate") LocalDateTime startDate,
+                                               @Param("endDate") LocalDateTime endDate,
+                                               @Param("status") Order.OrderStatus status);
+
+    @Query(ORDER_DATE_BOUNDS + USER_FILTER)
+    List<Object[]> findOrderDateBoundsByUser(@Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate,
+                                             @Param("userId") Long userId);
+
+    @Query(ORDER_DATE_BOUNDS + STATUS_FILTER + USER_FILTER)
+    List<Object[]> findOrderDateBoundsByStatusAndUser(@Param("startDate") LocalDateTime startDate,
+                                                      @Param("endDate") LocalDateTime endDate,
+                                                      @Param("status") Order.OrderStatus status,
+                                                      @Param("userId") Long userId);
+
+    /**
+     * Streams the orders placed at or after {@code from} and strictly before {@code to}.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + BEFORE_TO)
+    Stream<Order> streamByOrderDateBefore(@Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + STATUS_FILTER + BEFORE_TO)
+    Stream<Order> streamByStatusAndOrderDateBefore(@Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to,
+                                                   @Param("status") Order.OrderStatus status);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + USER_FILTER + BEFORE_TO)
+    Stream<Order> streamByUserAndOrderDateBefore(@Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 @Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + STATUS_FILTER + USER_FILTER + BEFORE_TO)
+    Stream<Order> streamByStatusAndUserAndOrderDateBefore(@Param("from") LocalDateTime from,
+                                                          @Param("to") LocalDateTime to,
+                                                          @Param("status") Order.OrderStatus status,
+                                                          @Param("userId") Long userId);
+
+    /**
+     * Streams the orders placed at or after {@code from} and up to and including {@code to}.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + THROUGH_TO)
+    Stream<Order> streamByOrderDateThrough(@Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + STATUS_FILTER + THROUGH_TO)
+    Stream<Order> streamByStatusAndOrderDateThrough(@Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to,
+                                                    @Param("status") Order.OrderStatus status);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + USER_FILTER + THROUGH_TO)
+    Stream<Order> streamByUserAndOrderDateThrough(@Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to,
+                                                  @Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_DATE_WINDOW + STATUS_FILTER + USER_FILTER + THROUGH_TO)
+    Stream<Order> streamByStatusAndUserAndOrderDateThrough(@Param("from") LocalDateTime from,
+                                                           @Param("to") LocalDateTime to,
+                                                           @Param("status") Order.OrderStatus status,
+                                                           @Param("userId") Long userId);
+
+    /**
+     * Keyset page of a user's orders, newest first, starting just after the given (orderDate, id).
+     */
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.orderDate < :lastOrderDate OR (o.orderDate = :lastOrderDate AND o.id < :lastId)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findUserPageBefore(@Param("userId") Long userId,
+                                   @Param("lastOrderDate") LocalDateTime lastOrderDate,
+                                   @Param("lastId") Long lastId,
+                                   Pageable pageable);
+
+    /**
+     * Keyset page of a user's order history, newest first, starting just after the given (orderDate, id).
+     * Reads only the order columns and counts the item lines in the same statement; the user row is never touched.
+     */
+    @Query("SELECT new com.ecommerce.legacy.model.OrderHistoryEntry(o.id, o.orderDate, o.status, o.totalAmount, COUNT(i)) " +
+           "FROM Order o LEFT JOIN o.orderItems i WHERE o.user.id = :userId " +
+           "AND (o.orderDate < :lastOrderDate OR (o.orderDate = :lastOrderDate AND o.id < :lastId)) " +
+           "GROUP BY o.id, o.orderDate, o.status, o.totalAmount " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderHistoryEntry> findUserHistoryBefore(@Param("userId") Long userId,
+                                                  @Param("lastOrderDate") LocalDateTime lastOrderDate,
+                                                  @Param("lastId") Long lastId,
+                                                  Pageable pageable);
+
+    /**
+     * Returns {orderId, productId, total quantity} for every product line of orders in the given status.
+     */
+    @Query("SELECT i.order.id, i.product.id, SUM(i.quantity) FROM OrderItem i " +
+           "WHERE i.order.status = :status GROUP BY i.order.id, i.product.id")
+    List<Object[]> sumItemQuantitiesByStatus(@Param("status") Order.OrderStatus status);
+
+    /**
+     * Returns {orderId, status} for each of the given orders that exists, without loading the orders.
+     */
+    @Query("SELECT o.id, o.status FROM Order o WHERE o.id IN :ids")
+    List<Object[]> findStatusesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Moves those of the given orders that are still in status {@code from} to status {@code to},
+     * bumping their version so stale copies cannot be saved over the change.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1 WHERE o.id IN :ids AND o.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") Order.OrderStatus from,
+                     @Param("to") Order.OrderStatus to);
+
+    /**
+     * Moves those of the given orders whose status is one of {@code from} to status {@code to}.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1 WHERE o.id IN :ids AND o.status IN :from")
+    int updateStatusIn(@Param("ids") Collection<Long> ids,
+                       @Param("from") Collection<Order.OrderStatus> from,
+                       @Param("to") Order.OrderStatus to);
+
+    /**
+     * Moves every order in status {@code from} placed within the date range to status {@code to}.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1 " +
+           "WHERE o.status = :from AND o.orderDate BETWEEN :startDate AND :endDate")
+    int updateStatusByDateRange(@Param("from") Order.OrderStatus from,
+                                @Param("startDate") LocalDateTime startDate,
+                                @Param("endDate") LocalDateTime endDate,
+                                @Param("to") Order.OrderStatus to);
 }
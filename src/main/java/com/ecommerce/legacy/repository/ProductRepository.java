@@ -1,20 +1,35 @@
 package com.ecommerce.legacy.repository;
 
 import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.ProductSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    String PRODUCT_SUMMARY = "new com.ecommerce.legacy.model.ProductSummary(p.id, p.name, p.description, p.price, " +
+            "p.stockQuantity, p.category, p.sku, p.imageUrl, p.createdAt, p.updatedAt)";
+
     Optional<Product> findBySku(String sku);
 
     List<Product> findByCategory(String category);
@@ -34,4 +49,153 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<String> findAllCategories();
 
     boolean existsBySku(String sku);
+
+    @Query("SELECT " + PRODUCT_SUMMARY + " FROM Product p ORDER BY p.id")
+    List<ProductSummary> findAllSummaries();
+
+    @Query(value = "SELECT " + PRODUCT_SUMMARY + " FROM Product p",
+           countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummary> findAllSummaries(Pageable pageable);
+
+    @Query("SELECT " + PRODUCT_SUMMARY + " FROM Product p WHERE p.category = :category ORDER BY p.id")
+    List<ProductSummary> findSummariesByCategory(@Param("category") String category);
+
+    @Query(value = "SELECT " + PRODUCT_SUMMARY + " FROM Product p WHERE p.category = :category",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category = :category")
+    Page<ProductSummary> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+    @Query("SELECT " + PRODUCT_SUMMARY + " FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id, p.stockQuantity FROM Product p ORDER BY p.id")
+    List<Object[]> findAllStockLevels();
+
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.sku = :sku")
+    Optional<LocalDateTime> findUpdatedAtBySku(@Param("sku") String sku);
+
+    @Query("SELECT p.sku FROM Product p WHERE p.sku IN :skus")
+    List<String> findExistingSkus(@Param("skus") Collection<String> skus);
+
+    String FACET_FIELDS = "SELECT p.id, p.category, p.price, p.stockQuantity FROM Product p " +
+            "WHERE p.price BETWEEN :minPrice AND :maxPrice ";
+
+    /**
+     * Streams (id, category, price, stock) for every product in the price range, so facet counts can be
+     * aggregated in one pass without loading entities.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(FACET_FIELDS + "ORDER BY p.id")
+    Stream<Object[]> streamFacetFields(@Param("minPrice") BigDecimal minPrice,
+                                       @Param("maxPrice") BigDecimal maxPrice);
+
+    /**
+     * Like {@link #streamFacetFields}, but only for products with stock in their row.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(FACET_FIELDS + "AND p.stockQuantity > 0 ORDER BY p.id")
+    Stream<Object[]> streamInStockFacetFields(@Param("minPrice") BigDecimal minPrice,
+                                              @Param("maxPrice") BigDecimal maxPrice);
+
+    // Keyset pagination: each query seeks past the last (sort value, id) seen, so no offset or count is needed
+
+    @Query("SELECT p FROM Product p WHERE p.id > :lastId ORDER BY p.id")
+    List<Product> findPageAfterId(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.name > :lastName OR (p.name = :lastName AND p.id > :lastId) " +
+           "ORDER BY p.name, p.id")
+    List<Product> findPageAfterName(@Param("lastName") String lastName, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.price > :lastPrice OR (p.price = :lastPrice AND p.id > :lastId) " +
+           "ORDER BY p.price, p.id")
+    List<Product> findPageAfterPrice(@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.id > :lastId ORDER BY p.id")
+    List<Product> findCategoryPageAfterId(@Param("category") String category, @Param("lastId") Long lastId,
+                                          Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.category = :category " +
+           "AND (p.name > :lastName OR (p.name = :lastName AND p.id > :lastId)) ORDER BY p.name, p.id")
+    List<Product> findCategoryPageAfterName(@Param("category") String category, @Param("lastName") String lastName,
+                                            @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.category = :category " +
+           "AND (p.price > :lastPrice OR (p.price = :lastPrice AND p.id > :lastId)) ORDER BY p.price, p.id")
+    List<Product> findCategoryPageAfterPrice(@Param("category") String category, @Param("lastPrice") BigDecimal lastPrice,
+                                             @Param("lastId") Long lastId, Pageable pageable);
+
+    /**
+     * Streams (id, name, description, price, category) rows in id order for building the in-memory
+     * indexes without loading entities.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.id, p.name, p.description, p.price, p.category, p.stockQuantity FROM Product p ORDER BY p.id")
+    Stream<Object[]> streamIndexFields();
+
+    /**
+     * Loads the product with its row locked until the transaction ends, waiting for uncommitted writes to it.
+     */
+    @Transactional
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllOrderedById();
+
+    /**
+     * Decrements stock only if enough is on hand, as a single conditional statement.
+     * Returns the number of rows updated: 1 on success, 0 if the product is missing or short.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = :updatedAt, " +
+           "p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("id") Long id,
+                                  @Param("quantity") Integer quantity,
+                                  @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Adds {@code delta} (which may be negative) to stock as a single relative statement.
+     * Returns the number of rows updated: 0 if the product is missing.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :delta, p.updatedAt = :updatedAt, " +
+           "p.version = p.version + 1 WHERE p.id = :id")
+    int adjustStock(@Param("id") Long id, @Param("delta") Integer delta, @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Returns {orderId, productId, total quantity} over the items of the given orders.
+     */
+    @Query("SELECT i.order.id, i.product.id, SUM(i.quantity) FROM OrderItem i WHERE i.order.id IN :orderIds " +
+           "GROUP BY i.order.id, i.product.id")
+    List<Object[]> sumOrderedQuantities(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Adds back, in one statement, the quantity of each listed product ordered across the given orders.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + " +
+           "(SELECT SUM(i.quantity) FROM OrderItem i WHERE i.product.id = p.id AND i.order.id IN :orderIds), " +
+           "p.updatedAt = :updatedAt, p.version = p.version + 1 WHERE p.id IN :productIds")
+    int restoreOrderedStock(@Param("orderIds") Collection<Long> orderIds,
+                            @Param("productIds") Collection<Long> productIds,
+                            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Records the units held for PENDING orders. The reserved quantity is part of the product's JSON,
+     * so the update time moves too and conditional GETs see the change.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.reservedQuantity = :quantity, p.updatedAt = :updatedAt, " +
+           "p.version = p.version + 1 WHERE p.id = :id")
+    int updateReservedQuantity(@Param("id") Long id, @Param("quantity") Integer quantity,
+                               @Param("updatedAt") LocalDateTime updatedAt);
 }
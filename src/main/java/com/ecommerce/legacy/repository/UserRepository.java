@@ -1,16 +1,23 @@
 package com.ecommerce.legacy.repository;
 
 import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.model.UserSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    @Query("SELECT new com.ecommerce.legacy.model.UserSummary(u.id, u.username, u.email, u.firstName, u.lastName, " +
+           "u.createdAt, u.updatedAt) FROM User u ORDER BY u.id")
+    List<UserSummary> findAllSummaries();
+
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
@@ -18,6 +25,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.username = :username OR u.email = :email")
     Optional<User> findByUsernameOrEmail(@Param("username") String username, @Param("email") String email);
 
+    @Query("SELECT u.updatedAt FROM User u WHERE u.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
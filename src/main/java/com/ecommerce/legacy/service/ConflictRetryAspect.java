@@ -0,0 +1,128 @@
+package com.ecommerce.legacy.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-runs {@link RetryOnConflict} methods that fail an optimistic version check.
+ *
+ * The aspect is ordered ahead of the transaction interceptor, so every attempt gets its own transaction
+ * and reloads what it read. Between attempts it sleeps for a random time up to an exponentially growing,
+ * capped ceiling, so writers that collided do not collide again in lockstep. A method called inside an
+ * existing transaction is not retried: that transaction is already doomed and only its outermost caller
+ * can start over. Calls, conflicts, retries and exhausted retries are counted per method.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect {
+
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Map<String, MethodCounters> countersByMethod = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConflictRetryAspect(@Value("${retry.conflict.max-attempts:4}") int maxAttempts,
+                               @Value("${retry.conflict.initial-backoff-ms:5}") long initialBackoffMillis,
+                               @Value("${retry.conflict.max-backoff-ms:100}") long maxBackoffMillis) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Conflict retry attempts must be greater than zero");
+        }
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("Conflict retry backoff must be between zero and the maximum backoff");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Around("@annotation(com.ecommerce.legacy.service.RetryOnConflict)")
+    public Object retryOnConflict(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        MethodCounters counters = countersByMethod.computeIfAbsent(joinPoint.getSignature().toShortString(),
+                method -> new MethodCounters());
+        counters.calls.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                counters.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    counters.exhausted.increment();
+                    throw e;
+                }
+                counters.retries.increment();
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the counters of every method of {@code type} that has been called, keyed by method.
+     */
+    public Map<String, Object> getStats(Class<?> type) {
+        String prefix = type.getSimpleName() + ".";
+        Map<String, Object> methods = new TreeMap<>();
+        countersByMethod.forEach((method, counters) -> {
+            if (method.startsWith(prefix)) {
+                methods.put(method, counters.toMap());
+            }
+        });
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("methods", methods);
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("initialBackoffMs", initialBackoffMillis);
+        stats.put("maxBackoffMs", maxBackoffMillis);
+        return stats;
+    }
+
+    private void backOff(int attempt, OptimisticLockingFailureException conflict) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, MAX_BACKOFF_SHIFT));
+        long sleepMillis = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (sleepMillis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private static final class MethodCounters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("calls", calls.sum());
+            map.put("conflicts", conflicts.sum());
+            map.put("retries", retries.sum());
+            map.put("exhausted", exhausted.sum());
+            return map;
+        }
+    }
+}
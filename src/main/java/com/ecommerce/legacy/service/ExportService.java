@@ -0,0 +1,184 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes whole tables as newline-delimited JSON, and order date ranges as a JSON array, without holding
+ * them in memory.
+ *
+ * Rows are read through a forward-only database cursor and written in chunks; the persistence
+ * context is cleared after every chunk so only one chunk of entities is ever live. Each method
+ * must be called from the thread that writes the response, since the cursor belongs to its transaction.
+ */
+@Service
+public class ExportService {
+
+    private static final int CHUNK_SIZE = 100;
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+    private final Duration dateRangePartition;
+
+    @Autowired
+    public ExportService(ProductRepository productRepository, OrderRepository orderRepository,
+                         EntityManager entityManager, ObjectMapper objectMapper,
+                         @Value("${orders.date-range.partition-hours:24}") long partitionHours) {
+        if (partitionHours <= 0) {
+            throw new IllegalArgumentException("Date range partition must be greater than zero");
+        }
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.dateRangePartition = Duration.ofHours(partitionHours);
+        // Flushing after every row would turn each line into its own socket write
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream out) throws IOException {
+        try (Stream<Product> products = productRepository.streamAllOrderedById()) {
+            return writeInChunks(products.iterator(), out);
+        }
+    }
+
+    /**
+     * Exports orders with their user and items. Items are loaded a chunk of orders at a time,
+     * so the export costs a few queries per chunk rather than one per order.
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(OutputStream out) throws IOException {
+        try (Stream<Order> orders = orderRepository.streamAllWithUser()) {
+            return writeInChunks(orders.iterator(), out);
+        }
+    }
+
+    /**
+     * Writes the orders placed between {@code startDate} and {@code endDate}, both inclusive, as one JSON
+     * array, oldest first, optionally only those in {@code status} and/or placed by {@code userId}.
+     *
+     * The range is read in consecutive windows of {@code orders.date-range.partition-hours}, each through
+     * its own cursor, so a long range never becomes one long-running scan. Each combination of filters has
+     * its own queries, so the windows and their bounds are read through the index that fits them. Orders
+     * are written as they are read, a chunk at a time, like the exports. The range must be checked before
+     * the response is committed; an error once orders have been written can only cut the array short.
+     */
+    @Transactional(readOnly = true)
+    public long exportOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                        Order.OrderStatus status, Long userId, OutputStream out) throws IOException {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        JsonGenerator generator = createGenerator(out);
+        generator.writeStartArray();
+        long written = 0;
+        // Windows start at the first order in the range, so a wide range with few orders costs few windows
+        Object[] bounds = findOrderDateBounds(startDate, endDate, status, userId);
+        LocalDateTime from = (LocalDateTime) bounds[0];
+        LocalDateTime last = (LocalDateTime) bounds[1];
+        while (from != null) {
+            LocalDateTime to = from.plus(dateRangePartition);
+            boolean lastWindow = !to.isBefore(last);
+            try (Stream<Order> orders = streamOrderWindow(from, lastWindow ? last : to, lastWindow, status, userId)) {
+                written += writeChunks(orders.iterator(), generator, false);
+            }
+            from = lastWindow ? null : to;
+        }
+        generator.writeEndArray();
+        generator.close();
+        return written;
+    }
+
+    private Object[] findOrderDateBounds(LocalDateTime startDate, LocalDateTime endDate,
+                                         Order.OrderStatus status, Long userId) {
+        if (status != null && userId != null) {
+            return orderRepository.findOrderDateBoundsByStatusAndUser(startDate, endDate, status, userId).get(0);
+        }
+        if (status != null) {
+            return orderRepository.findOrderDateBoundsByStatus(startDate, endDate, status).get(0);
+        }
+        if (userId != null) {
+            return orderRepository.findOrderDateBoundsByUser(startDate, endDate, userId).get(0);
+        }
+        return orderRepository.findOrderDateBounds(startDate, endDate).get(0);
+    }
+
+    /**
+     * Streams one window of the range, up to {@code to} inclusive for the final window and exclusive otherwise,
+     * through the query written for the filters given.
+     */
+    private Stream<Order> streamOrderWindow(LocalDateTime from, LocalDateTime to, boolean through,
+                                            Order.OrderStatus status, Long userId) {
+        if (status != null && userId != null) {
+            return through ? orderRepository.streamByStatusAndUserAndOrderDateThrough(from, to, status, userId)
+                    : orderRepository.streamByStatusAndUserAndOrderDateBefore(from, to, status, userId);
+        }
+        if (status != null) {
+            return through ? orderRepository.streamByStatusAndOrderDateThrough(from, to, status)
+                    : orderRepository.streamByStatusAndOrderDateBefore(from, to, status);
+        }
+        if (userId != null) {
+            return through ? orderRepository.streamByUserAndOrderDateThrough(from, to, userId)
+                    : orderRepository.streamByUserAndOrderDateBefore(from, to, userId);
+        }
+        return through ? orderRepository.streamByOrderDateThrough(from, to)
+                : orderRepository.streamByOrderDateBefore(from, to);
+    }
+
+    private <T> long writeInChunks(Iterator<T> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = createGenerator(out);
+        generator.setRootValueSeparator(null);
+        long written = writeChunks(rows, generator, true);
+        generator.close();
+        return written;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = writer.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private <T> long writeChunks(Iterator<T> rows, JsonGenerator generator, boolean newlineDelimited) throws IOException {
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        long written = 0;
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == CHUNK_SIZE || !rows.hasNext()) {
+                for (T row : chunk) {
+                    writer.writeValue(generator, row);
+                    if (newlineDelimited) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                written += chunk.size();
+                chunk.clear();
+                generator.flush();
+                entityManager.clear();
+            }
+        }
+        return written;
+    }
+}
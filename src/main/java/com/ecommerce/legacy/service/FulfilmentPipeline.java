@@ -0,0 +1,353 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies order status transitions pushed by the warehouse off the request thread.
+ *
+ * Transitions go into bounded queues, so a burst the workers cannot keep up with is refused at submit
+ * time instead of piling up in memory. Each worker has its own queue and an order always goes to the
+ * same one, so one order's transitions are applied in the order they were submitted even when they
+ * land in different batches. Each worker takes whatever is queued, up to a batch size, and
+ * applies the SHIPPED and DELIVERED transitions of the batch through
+ * {@link OrderService#applyStatusTransitions}, i.e. one status read and one update per kind of
+ * transition. Confirmations take stock out per product, so they still go through
+ * {@link OrderService#confirmOrder} one order at a time, but on a worker thread.
+ *
+ * Every submission gets a {@link Handle} that can be polled by id, or waited on through its future.
+ * Finished handles are kept for a retention period and then forgotten.
+ */
+@Component
+public class FulfilmentPipeline {
+
+    public enum State {
+        QUEUED, APPLIED, REJECTED
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(FulfilmentPipeline.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final OrderService orderService;
+    private final List<BlockingQueue<Handle>> queues = new ArrayList<>();
+    private final int workerCount;
+    private final int batchSize;
+    private final long retentionMillis;
+    private final Map<Long, Handle> handles = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    @Autowired
+    public FulfilmentPipeline(OrderService orderService,
+                              @Value("${fulfilment.queue-capacity:10000}") int queueCapacity,
+                              @Value("${fulfilment.workers:2}") int workerCount,
+                              @Value("${fulfilment.batch-size:500}") int batchSize,
+                              @Value("${fulfilment.handle-retention-seconds:3600}") long retentionSeconds) {
+        if (queueCapacity <= 0 || workerCount <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Fulfilment queue capacity, workers and batch size must be greater than zero");
+        }
+        if (retentionSeconds <= 0) {
+            throw new IllegalArgumentException("Fulfilment handle retention must be greater than zero");
+        }
+        this.orderService = orderService;
+        int capacityPerWorker = (queueCapacity + workerCount - 1) / workerCount;
+        for (int i = 0; i < workerCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(capacityPerWorker));
+        }
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Handle> queue = queues.get(i);
+            Thread worker = new Thread(() -> drain(queue), "fulfilment-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Stops the workers after their current batch; transitions still queued are rejected.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        List<Handle> leftOver = new ArrayList<>();
+        for (BlockingQueue<Handle> queue : queues) {
+            queue.drainTo(leftOver);
+        }
+        for (Handle handle : leftOver) {
+            reject(handle, "Fulfilment pipeline is shutting down");
+        }
+    }
+
+    /**
+     * Queues a transition on its order's worker and returns its handle at once.
+     *
+     * @throws RejectedExecutionException if that worker's queue is full
+     */
+    public Handle submit(Long orderId, Order.OrderStatus status) {
+        if (orderId == null || status == null) {
+            throw new IllegalArgumentException("Order id and status are required");
+        }
+        if (status != Order.OrderStatus.CONFIRMED && status != Order.OrderStatus.SHIPPED
+                && status != Order.OrderStatus.DELIVERED) {
+            throw new IllegalArgumentException("Fulfilment only confirms, ships or delivers orders, not " + status);
+        }
+        if (stopped) {
+            throw new RejectedExecutionException("Fulfilment pipeline is shutting down");
+        }
+        Handle handle = new Handle(nextId.incrementAndGet(), orderId, status);
+        handles.put(handle.id, handle);
+        if (!queues.get(Math.floorMod(orderId, workerCount)).offer(handle)) {
+            handles.remove(handle.id);
+            refused.incrementAndGet();
+            throw new RejectedExecutionException("Fulfilment queue is full");
+        }
+        submitted.incrementAndGet();
+        return handle;
+    }
+
+    public Handle getHandle(Long id) {
+        return handles.get(id);
+    }
+
+    /**
+     * Forgets finished handles once their retention period has passed.
+     */
+    @Scheduled(fixedDelayString = "${fulfilment.purge-interval-ms:60000}")
+    public void purgeHandles() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        Iterator<Handle> iterator = handles.values().iterator();
+        while (iterator.hasNext()) {
+            Handle handle = iterator.next();
+            if (handle.state != State.QUEUED && handle.completedAt < cutoff) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        int queued = 0;
+        int capacity = 0;
+        for (BlockingQueue<Handle> queue : queues) {
+            queued += queue.size();
+            capacity += queue.size() + queue.remainingCapacity();
+        }
+        stats.put("queued", queued);
+        stats.put("queueCapacity", capacity);
+        stats.put("workers", workerCount);
+        stats.put("batchSize", batchSize);
+        stats.put("submitted", submitted.get());
+        stats.put("refused", refused.get());
+        stats.put("applied", applied.get());
+        stats.put("rejected", rejected.get());
+        stats.put("batches", batches.get());
+        stats.put("handles", handles.size());
+        return stats;
+    }
+
+    private void drain(BlockingQueue<Handle> queue) {
+        List<Handle> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Handle first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Fulfilment batch failed", e);
+                for (Handle handle : batch) {
+                    if (handle.state == State.QUEUED) {
+                        reject(handle, "Fulfilment batch failed: " + e.getMessage());
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void process(List<Handle> batch) {
+        batches.incrementAndGet();
+        // An order may appear more than once (shipped, then delivered); each chunk holds it at most once, in order
+        Map<Long, Handle> chunk = new LinkedHashMap<>();
+        for (Handle handle : batch) {
+            if (handle.targetStatus == Order.OrderStatus.CONFIRMED) {
+                applyChunk(chunk);
+                confirm(handle);
+            } else {
+                if (chunk.containsKey(handle.orderId)) {
+                    applyChunk(chunk);
+                }
+                chunk.put(handle.orderId, handle);
+            }
+        }
+        applyChunk(chunk);
+    }
+
+    private void applyChunk(Map<Long, Handle> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<Long, Order.OrderStatus> targets = new HashMap<>();
+        for (Handle handle : chunk.values()) {
+            targets.put(handle.orderId, handle.targetStatus);
+        }
+        Map<Long, String> rejections;
+        try {
+            rejections = orderService.applyStatusTransitions(targets);
+        } catch (RuntimeException e) {
+            logger.error("Fulfilment status update failed for {} orders", chunk.size(), e);
+            for (Handle handle : chunk.values()) {
+                reject(handle, "Status update failed: " + e.getMessage());
+            }
+            chunk.clear();
+            return;
+        }
+        for (Handle handle : chunk.values()) {
+            String reason = rejections.get(handle.orderId);
+            if (reason == null) {
+                complete(handle);
+            } else {
+                reject(handle, reason);
+            }
+        }
+        chunk.clear();
+    }
+
+    private void confirm(Handle handle) {
+        try {
+            orderService.confirmOrder(handle.orderId);
+            complete(handle);
+        } catch (RuntimeException e) {
+            reject(handle, e.getMessage());
+        }
+    }
+
+    // Counted before the handle finishes, so a caller woken by its future already sees it in the stats
+    private void complete(Handle handle) {
+        applied.incrementAndGet();
+        handle.finish(State.APPLIED, null);
+    }
+
+    private void reject(Handle handle, String reason) {
+        rejected.incrementAndGet();
+        handle.finish(State.REJECTED, reason);
+    }
+
+    /**
+     * One submitted transition. Its future completes with the new status once the transition is applied,
+     * or exceptionally with an {@link IllegalStateException} carrying the reason it was rejected.
+     */
+    public static final class Handle {
+        private final Long id;
+        private final Long orderId;
+        private final Order.OrderStatus targetStatus;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<Order.OrderStatus> future = new CompletableFuture<>();
+        private volatile State state = State.QUEUED;
+        private volatile String error;
+        private volatile long completedAt;
+
+        private Handle(Long id, Long orderId, Order.OrderStatus targetStatus) {
+            this.id = id;
+            this.orderId = orderId;
+            this.targetStatus = targetStatus;
+        }
+
+        private void finish(State finalState, String reason) {
+            error = reason;
+            completedAt = System.currentTimeMillis();
+            state = finalState;
+            if (finalState == State.APPLIED) {
+                future.complete(targetStatus);
+            } else {
+                future.completeExceptionally(new IllegalStateException(reason));
+            }
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public Order.OrderStatus getTargetStatus() {
+            return targetStatus;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public CompletableFuture<Order.OrderStatus> getFuture() {
+            return future;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", id);
+            map.put("orderId", orderId);
+            map.put("targetStatus", targetStatus);
+            map.put("state", state);
+            map.put("error", error);
+            map.put("submittedAt", submittedAt);
+            map.put("completedAt", state == State.QUEUED ? null : completedAt);
+            return map;
+        }
+    }
+}
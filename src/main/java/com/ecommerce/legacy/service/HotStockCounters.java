@@ -0,0 +1,77 @@
+package com.ecommerce.legacy.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The products currently in hot stock mode, each with its {@link SplitStockCounter}.
+ *
+ * A sale that finds no counter goes to the product's row instead. So that a counter cannot be
+ * registered between that check and the row update, the sale holds the product's shared
+ * {@link #saleLock} across both, and registration takes the exclusive side. Locks are striped by
+ * product id.
+ */
+@Component
+public class HotStockCounters {
+
+    private static final int STRIPES = 64;
+
+    private final Map<Long, SplitStockCounter> countersById = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] switchLocks = new ReadWriteLock[STRIPES];
+
+    public HotStockCounters() {
+        for (int i = 0; i < STRIPES; i++) {
+            switchLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public SplitStockCounter get(Long id) {
+        return countersById.get(id);
+    }
+
+    /**
+     * Registers a counter for a product; returns the counter already registered, or null if there was none.
+     * Waits for sales that found no counter to finish their row update first.
+     */
+    public SplitStockCounter putIfAbsent(Long id, SplitStockCounter counter) {
+        Lock lock = lockFor(id).writeLock();
+        lock.lock();
+        try {
+            return countersById.putIfAbsent(id, counter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SplitStockCounter remove(Long id) {
+        return countersById.remove(id);
+    }
+
+    /**
+     * Removes the product's counter only if it is still {@code counter}.
+     */
+    public boolean remove(Long id, SplitStockCounter counter) {
+        return countersById.remove(id, counter);
+    }
+
+    /**
+     * The shared lock a sale holds from finding no counter until its row update has run.
+     */
+    public Lock saleLock(Long id) {
+        return lockFor(id).readLock();
+    }
+
+    public Map<Long, SplitStockCounter> getAll() {
+        return Collections.unmodifiableMap(countersById);
+    }
+
+    private ReadWriteLock lockFor(Long id) {
+        return switchLocks[(int) (id & (STRIPES - 1))];
+    }
+}
@@ -0,0 +1,457 @@
+package com.ecommerce.legacy.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only journal of every stock change, kept in fixed-size memory-mapped segment files.
+ *
+ * Each record holds a sequence number, product id, order id, timestamp, stock delta and reason,
+ * and is checksummed so a torn write at the tail is detected on replay. Appending is a copy into
+ * the mapped segment under a short lock; making records durable is left to a background flush
+ * that forces the segment once for everything appended since the last flush, so the order path
+ * never waits on the disk. A crash can lose at most one flush interval of records.
+ *
+ * The journal keeps a running stock balance per product. Snapshots of those balances are written
+ * periodically, so a restart only replays the records written after the latest snapshot.
+ * Segments are never rewritten; archiving old ones is left to operations.
+ */
+@Component
+public class InventoryJournal {
+
+    public enum Reason {
+        INITIAL, ADJUSTMENT, SALE, CANCELLATION, DELETION
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryJournal.class);
+
+    // sequence, product id, order id, timestamp (8 bytes each), delta, reason, checksum (4 bytes each), padding
+    static final int RECORD_SIZE = 48;
+    private static final int CHECKSUMMED_BYTES = 40;
+    private static final int CHECKSUM_OFFSET = 40;
+    private static final Reason[] REASONS = Reason.values();
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final long SNAPSHOT_MAGIC = 0x494e564a524e4c31L;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Long> balances = new HashMap<>();
+    private final CRC32 checksum = new CRC32();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+    private MappedByteBuffer segment;
+    private int segmentCount;
+    private int position;
+    private long lastSequence;
+    private long snapshotSequence;
+    private long appended;
+    private volatile long durableSequence;
+    private volatile boolean enabled;
+
+    @Autowired
+    public InventoryJournal(@Value("${inventory.journal.dir:}") String directory,
+                            @Value("${inventory.journal.segment-size-mb:16}") int segmentSizeMb) {
+        if (segmentSizeMb <= 0 || segmentSizeMb > 1024) {
+            throw new IllegalArgumentException("Journal segment size must be between 1 and 1024 MB");
+        }
+        this.directory = StringUtils.isBlank(directory) ? null : Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024 / RECORD_SIZE * RECORD_SIZE;
+    }
+
+    /**
+     * Takes ownership of the journal directory, loads the latest snapshot and replays the records after it.
+     * Without a directory, or if another process owns it, the journal stays disabled and appends are ignored.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            directoryLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            directoryLock = null;
+        }
+        if (directoryLock == null) {
+            lockChannel.close();
+            logger.warn("Inventory journal at {} is in use by another process; journaling is disabled", directory);
+            return;
+        }
+
+        long started = System.nanoTime();
+        loadSnapshot();
+        replaySegments();
+        durableSequence = lastSequence;
+        enabled = true;
+        logger.info("Inventory journal opened at {}: {} products, sequence {} ({} ms)", directory, balances.size(),
+                lastSequence, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends one stock change. The record is visible to {@link #getBalance} immediately and durable after the next flush.
+     */
+    public void append(Long productId, int delta, Reason reason, Long orderId) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (position + RECORD_SIZE > segmentSize) {
+                segment.force();
+                durableSequence = lastSequence;
+                openSegment(lastSequence + 1);
+            }
+            long sequence = lastSequence + 1;
+            record.clear();
+            record.putLong(sequence)
+                    .putLong(productId)
+                    .putLong(orderId != null ? orderId : 0L)
+                    .putLong(System.currentTimeMillis())
+                    .putInt(delta)
+                    .putInt(reason.ordinal())
+                    .putInt(CHECKSUM_OFFSET, checksum(record.array()));
+            segment.position(position);
+            segment.put(record.array());
+            position += RECORD_SIZE;
+            lastSequence = sequence;
+            appended++;
+            apply(productId, delta, reason);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open next inventory journal segment", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: forces everything appended since the last flush to disk with one write.
+     */
+    @Scheduled(fixedDelayString = "${inventory.journal.flush-interval-ms:100}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        MappedByteBuffer target;
+        long sequence;
+        lock.lock();
+        try {
+            target = segment;
+            sequence = lastSequence;
+        } finally {
+            lock.unlock();
+        }
+        if (sequence > durableSequence) {
+            // Records in earlier segments were forced when the segment filled up
+            target.force();
+            durableSequence = sequence;
+        }
+    }
+
+    /**
+     * Writes the current balances to a new snapshot file and removes older snapshots.
+     */
+    @Scheduled(fixedDelayString = "${inventory.journal.snapshot-interval-ms:60000}")
+    public void snapshot() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Long> copy;
+        long sequence;
+        lock.lock();
+        try {
+            if (lastSequence == snapshotSequence) {
+                return;
+            }
+            copy = new HashMap<>(balances);
+            sequence = lastSequence;
+        } finally {
+            lock.unlock();
+        }
+        // A snapshot must never cover records that could still be lost
+        flush();
+
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)), crc))) {
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(copy.size());
+            for (Map.Entry<Long, Long> entry : copy.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        snapshotSequence = sequence;
+        for (Path old : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (!old.equals(target)) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        snapshot();
+        release();
+    }
+
+    /**
+     * Flushes and gives up the directory without writing a snapshot.
+     */
+    void release() throws IOException {
+        flush();
+        enabled = false;
+        directoryLock.release();
+        lockChannel.close();
+    }
+
+    /**
+     * Returns the stock the journal says the product should have, or null if it has no record of it.
+     */
+    public Long getBalance(Long productId) {
+        lock.lock();
+        try {
+            return balances.get(productId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<Long, Long> getBalances() {
+        lock.lock();
+        try {
+            return new HashMap<>(balances);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", directory != null ? directory.toString() : null);
+        lock.lock();
+        try {
+            stats.put("products", balances.size());
+            stats.put("segments", segmentCount);
+            stats.put("lastSequence", lastSequence);
+            stats.put("snapshotSequence", snapshotSequence);
+            stats.put("appendedSinceStart", appended);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("durableSequence", durableSequence);
+        return stats;
+    }
+
+    private void apply(Long productId, int delta, Reason reason) {
+        switch (reason) {
+            case INITIAL:
+                balances.put(productId, (long) delta);
+                break;
+            case DELETION:
+                balances.remove(productId);
+                break;
+            default:
+                balances.merge(productId, (long) delta, Long::sum);
+                break;
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (readSnapshot(snapshots.get(i))) {
+                return;
+            }
+            logger.warn("Ignoring unreadable inventory journal snapshot {}", snapshots.get(i));
+        }
+    }
+
+    private boolean readSnapshot(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        Map<Long, Long> loaded = new HashMap<>();
+        long sequence;
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (in.readLong() != SNAPSHOT_MAGIC) {
+                return false;
+            }
+            sequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                loaded.put(in.readLong(), in.readLong());
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        balances.putAll(loaded);
+        snapshotSequence = sequence;
+        lastSequence = sequence;
+        return true;
+    }
+
+    /**
+     * Replays the records after the snapshot and positions the writer after the last valid record.
+     * Segments that end before the snapshot are skipped without being read.
+     *
+     * Replay stops at the first record that fails its checksum or does not carry the next sequence
+     * number. Everything after it in that segment is zeroed, so records left over from before the
+     * break can never be replayed once new appends have filled the gap, and any later segments are
+     * set aside with a {@code .discarded} suffix.
+     */
+    private void replaySegments() throws IOException {
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        segmentCount = segments.size();
+        if (segments.isEmpty()) {
+            openSegment(lastSequence + 1);
+            return;
+        }
+        byte[] bytes = new byte[RECORD_SIZE];
+        ByteBuffer read = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            if (!last && firstSequence(segments.get(i + 1)) <= snapshotSequence + 1) {
+                continue;
+            }
+            long expected = firstSequence(segments.get(i));
+            boolean broken;
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+                int offset = 0;
+                while (offset + RECORD_SIZE <= segmentSize) {
+                    buffer.position(offset);
+                    buffer.get(bytes);
+                    long sequence = read.getLong(0);
+                    if (sequence != expected || read.getInt(CHECKSUM_OFFSET) != checksum(bytes)) {
+                        break;
+                    }
+                    if (sequence > snapshotSequence) {
+                        apply(read.getLong(8), read.getInt(32), REASONS[read.getInt(36)]);
+                    }
+                    lastSequence = Math.max(lastSequence, sequence);
+                    expected++;
+                    offset += RECORD_SIZE;
+                }
+                // Segments are only rolled over when full, so an earlier segment that stops short is damaged
+                broken = offset + RECORD_SIZE <= segmentSize;
+                if (last || broken) {
+                    segment = buffer;
+                    position = offset;
+                    clear(buffer, offset);
+                }
+            }
+            if (broken && !last) {
+                discard(segments.subList(i + 1, segments.size()));
+                segmentCount = i + 1;
+                break;
+            }
+        }
+        if (position + RECORD_SIZE > segmentSize) {
+            openSegment(lastSequence + 1);
+        }
+    }
+
+    private void clear(MappedByteBuffer buffer, int from) {
+        byte[] zeros = new byte[64 * 1024];
+        buffer.position(from);
+        while (buffer.position() < segmentSize) {
+            buffer.put(zeros, 0, Math.min(zeros.length, segmentSize - buffer.position()));
+        }
+    }
+
+    private void discard(List<Path> segments) throws IOException {
+        for (Path file : segments) {
+            logger.warn("Inventory journal segment {} follows a damaged record and will not be replayed", file);
+            Files.move(file, file.resolveSibling(file.getFileName() + ".discarded"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        position = 0;
+        segmentCount++;
+    }
+
+    private int checksum(byte[] bytes) {
+        checksum.reset();
+        checksum.update(bytes, 0, CHECKSUMMED_BYTES);
+        return (int) checksum.getValue();
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long firstSequence(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
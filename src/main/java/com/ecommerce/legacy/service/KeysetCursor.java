@@ -0,0 +1,90 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.OrderHistoryEntry;
+import com.ecommerce.legacy.model.Product;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination. It records the sort key and the
+ * (sort value, id) pair of the last row returned, so the next page can seek straight past it.
+ */
+public class KeysetCursor {
+
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_NAME = "name";
+    public static final String SORT_BY_PRICE = "price";
+    public static final String SORT_BY_ORDER_DATE = "orderDate";
+
+    private static final String SEPARATOR = "\n";
+
+    private final String sortBy;
+    private final Long id;
+    private final String value;
+
+    public KeysetCursor(String sortBy, Long id, String value) {
+        this.sortBy = sortBy;
+        this.id = id;
+        this.value = value;
+    }
+
+    public static KeysetCursor after(Product product, String sortBy) {
+        switch (sortBy) {
+            case SORT_BY_NAME:
+                return new KeysetCursor(sortBy, product.getId(), product.getName());
+            case SORT_BY_PRICE:
+                return new KeysetCursor(sortBy, product.getId(), product.getPrice().toPlainString());
+            default:
+                return new KeysetCursor(SORT_BY_ID, product.getId(), "");
+        }
+    }
+
+    public static KeysetCursor after(Order order) {
+        return new KeysetCursor(SORT_BY_ORDER_DATE, order.getId(), order.getOrderDate().toString());
+    }
+
+    public static KeysetCursor after(OrderHistoryEntry entry) {
+        return new KeysetCursor(SORT_BY_ORDER_DATE, entry.getId(), entry.getOrderDate().toString());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}, checking that it was issued for the same sort key.
+     */
+    public static KeysetCursor decode(String token, String expectedSortBy) {
+        String[] parts;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = StringUtils.splitPreserveAllTokens(decoded, SEPARATOR, 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        if (parts.length != 3 || !NumberUtils.isDigits(parts[1])) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        if (!parts[0].equals(expectedSortBy)) {
+            throw new IllegalArgumentException("Cursor was not issued for sort key: " + expectedSortBy);
+        }
+        return new KeysetCursor(parts[0], Long.valueOf(parts[1]), parts[2]);
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
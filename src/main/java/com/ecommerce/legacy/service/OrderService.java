@@ -1,34 +1,142 @@
 package com.ecommerce.legacy.service;
 
+import com.ecommerce.legacy.model.BulkStatusRequest;
 import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.OrderHistoryEntry;
 import com.ecommerce.legacy.model.OrderItem;
+import com.ecommerce.legacy.model.OrderItemRequest;
+import com.ecommerce.legacy.model.OrderSummary;
 import com.ecommerce.legacy.model.Product;
 import com.ecommerce.legacy.model.User;
 import com.ecommerce.legacy.repository.OrderRepository;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.ecommerce.legacy.service.TransactionCallbacks.afterCommit;
+import static com.ecommerce.legacy.service.TransactionCallbacks.afterRollback;
 
 @Service
 @Transactional
 public class OrderService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_BULK_STATUS_IDS = 100_000;
+
+    // Upper bound on ids per statement, keeping the generated IN list a sensible size
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    // Seek values that sort after every real order, used when no cursor is given
+    private static final LocalDateTime LAST_ORDER_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    // Lower bound for an order date range left open
+    private static final LocalDateTime FIRST_ORDER_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final OrderRepository orderRepository;
     private final UserService userService;
     private final ProductService productService;
+    private final ReservationLedger reservationLedger;
+    private final InventoryJournal inventoryJournal;
+    private final ConflictRetryAspect conflictRetryAspect;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, UserService userService, ProductService productService) {
+    public OrderService(OrderRepository orderRepository, UserService userService, ProductService productService,
+                        ReservationLedger reservationLedger, InventoryJournal inventoryJournal,
+                        ConflictRetryAspect conflictRetryAspect) {
         this.orderRepository = orderRepository;
         this.userService = userService;
         this.productService = productService;
+        this.reservationLedger = reservationLedger;
+        this.inventoryJournal = inventoryJournal;
+        this.conflictRetryAspect = conflictRetryAspect;
+    }
+
+    /**
+     * Re-creates the holds of every PENDING order, since the ledger does not survive a restart. Stock may
+     * have changed while the ledger was gone, so holds are capped at the stock on hand, oldest orders first;
+     * orders that lose units keep what fits and have the rest checked again when they are confirmed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildReservations() {
+        reservationLedger.clear();
+        List<Object[]> rows = new ArrayList<>(orderRepository.sumItemQuantitiesByStatus(Order.OrderStatus.PENDING));
+        rows.sort(Comparator.comparing(row -> (Long) row[0]));
+        Map<Long, Integer> stockById = new HashMap<>();
+        for (Object[] row : rows) {
+            Long orderId = (Long) row[0];
+            Long productId = (Long) row[1];
+            int quantity = ((Number) row[2]).intValue();
+            int stock = stockById.computeIfAbsent(productId, productService::getStockLevel);
+            int restored = reservationLedger.restore(orderId, productId, quantity, stock);
+            if (restored < quantity) {
+                logger.warn("Held {} of {} units of product {} for PENDING order {}: holds would exceed the {} in stock",
+                        restored, quantity, productId, orderId, stock);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.sweep-interval-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void expireReservations() {
+        reservationLedger.expire();
+    }
+
+    /**
+     * Writes the held quantity of every product whose holds changed since the last checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${reservation.checkpoint-interval-ms:30000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void checkpointReservations() {
+        Map<Long, Integer> changes = reservationLedger.drainChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            productService.saveReservedQuantities(changes);
+        } catch (RuntimeException e) {
+            reservationLedger.markChanged(changes.keySet());
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getReservationStats() {
+        return reservationLedger.getStats();
+    }
+
+    public Map<String, Object> getConflictStats() {
+        return conflictRetryAspect.getStats(OrderService.class);
     }
 
     public Order createOrder(Long userId, String shippingAddress) {
@@ -39,6 +147,7 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
+    @RetryOnConflict
     public Order addItemToOrder(Long orderId, Long productId, Integer quantity) {
         Order order = getOrderById(orderId);
         Product product = productService.getProductById(productId);
@@ -47,32 +156,108 @@ public class OrderService {
             throw new IllegalStateException("Cannot modify order that is not in PENDING status");
         }
 
-        if (!productService.isProductAvailable(productId, quantity)) {
+        // Hold the stock in memory; it is only taken out of the database when the order is confirmed
+        if (!reservationLedger.hold(orderId, productId, quantity, productService.getStockLevel(productId))) {
             throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
         }
+        afterRollback(() -> reservationLedger.release(orderId, productId, quantity));
 
         OrderItem orderItem = new OrderItem(order, product, quantity, product.getPrice());
         order.addOrderItem(orderItem);
 
-        // Update product stock
-        Integer newStock = product.getStockQuantity() - quantity;
-        productService.updateStock(productId, newStock);
-
         return orderRepository.save(order);
     }
 
+    /**
+     * Adds several lines to a PENDING order in one transaction: the products are loaded together, a hold
+     * is placed for every line, and the order is saved once. Either every line is added or none is. The
+     * result holds one entry per line, in request order, with a status of ADDED, INSUFFICIENT_STOCK,
+     * NOT_FOUND or INVALID, plus the saved order when every line was added.
+     */
+    @RetryOnConflict
+    public Map<String, Object> addItemsToOrder(Long orderId, List<OrderItemRequest> lines) {
+        validateBatchSize(lines);
+        Order order = getOrderById(orderId);
+        if (order.getStatus() != Order.OrderStatus.PENDING) {
+            throw new IllegalStateException("Cannot modify order that is not in PENDING status");
+        }
+
+        Set<Long> productIds = new HashSet<>();
+        for (OrderItemRequest line : lines) {
+            if (line != null && line.getProductId() != null) {
+                productIds.add(line.getProductId());
+            }
+        }
+        Map<Long, Product> productsById = productService.getProductsById(productIds);
+
+        List<Map<String, Object>> results = new ArrayList<>(lines.size());
+        List<OrderItem> items = new ArrayList<>(lines.size());
+        List<OrderItemRequest> held = new ArrayList<>(lines.size());
+        boolean rejected = false;
+        for (OrderItemRequest line : lines) {
+            Long productId = line != null ? line.getProductId() : null;
+            Integer quantity = line != null ? line.getQuantity() : null;
+            Product product = productId != null ? productsById.get(productId) : null;
+            Map<String, Object> result = new HashMap<>();
+            result.put("productId", productId);
+            result.put("quantity", quantity);
+            if (productId == null || quantity == null || quantity <= 0) {
+                result.put("status", "INVALID");
+                rejected = true;
+            } else if (product == null) {
+                result.put("status", "NOT_FOUND");
+                rejected = true;
+            } else if (!reservationLedger.hold(orderId, productId, quantity, productService.getStockLevel(productId))) {
+                result.put("status", "INSUFFICIENT_STOCK");
+                rejected = true;
+            } else {
+                result.put("status", "ADDED");
+                held.add(line);
+                items.add(new OrderItem(order, product, quantity, product.getPrice()));
+            }
+            results.add(result);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", orderId);
+        response.put("lines", results);
+        if (rejected) {
+            // Nothing was written, so the holds placed for the lines that fitted are simply given back
+            for (OrderItemRequest line : held) {
+                reservationLedger.release(orderId, line.getProductId(), line.getQuantity());
+            }
+            response.put("added", false);
+            return response;
+        }
+        afterRollback(() -> {
+            for (OrderItemRequest line : held) {
+                reservationLedger.release(orderId, line.getProductId(), line.getQuantity());
+            }
+        });
+
+        order.addOrderItems(items);
+        response.put("added", true);
+        response.put("order", orderRepository.save(order));
+        return response;
+    }
+
     public Order getOrderById(Long id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with id: " + id));
     }
 
+    /**
+     * Returns every order with its user, items and products loaded, ready to be serialized.
+     */
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+        return orderRepository.findAllWithDetails();
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByUser(Long userId) {
-        User user = userService.getUserById(userId);
-        return orderRepository.findByUser(user);
+        userService.getUserById(userId);
+        return orderRepository.findByUserIdWithDetails(userId);
     }
 
     public Page<Order> getOrdersByUserPaginated(Long userId, Pageable pageable) {
@@ -80,15 +265,74 @@ public class OrderService {
         return orderRepository.findByUser(user, pageable);
     }
 
+    /**
+     * Returns a user's orders newest first, starting after {@code cursor}, without an offset or count query.
+     */
+    public Slice<Order> getOrdersByUserAfter(Long userId, String cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        userService.getUserById(userId);
+        KeysetCursor after = StringUtils.isBlank(cursor) ? null : KeysetCursor.decode(cursor, KeysetCursor.SORT_BY_ORDER_DATE);
+        LocalDateTime lastOrderDate = after == null ? LAST_ORDER_DATE : parseCursorDate(after);
+        Long lastId = after == null ? Long.MAX_VALUE : after.getId();
+
+        // Fetch one extra row to find out whether another page follows
+        List<Order> rows = orderRepository.findUserPageBefore(userId, lastOrderDate, lastId, PageRequest.of(0, size + 1));
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.of(0, size), hasNext);
+    }
+
+    /**
+     * Returns one page of a user's order history, newest first, starting after {@code cursor}. This is one
+     * query keyed by user id: an unknown user simply has no history, rather than costing a separate lookup.
+     */
+    @Transactional(readOnly = true)
+    public Slice<OrderHistoryEntry> getOrderHistory(Long userId, String cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        KeysetCursor after = StringUtils.isBlank(cursor) ? null : KeysetCursor.decode(cursor, KeysetCursor.SORT_BY_ORDER_DATE);
+        LocalDateTime lastOrderDate = after == null ? LAST_ORDER_DATE : parseCursorDate(after);
+        Long lastId = after == null ? Long.MAX_VALUE : after.getId();
+
+        // Fetch one extra row to find out whether another page follows
+        List<OrderHistoryEntry> rows = orderRepository.findUserHistoryBefore(userId, lastOrderDate, lastId,
+                PageRequest.of(0, size + 1));
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.of(0, size), hasNext);
+    }
+
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatus(status);
+        return orderRepository.findByStatusWithDetails(status);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderSummary> getAllOrderSummaries() {
+        return orderRepository.findAllSummaries();
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderSummary> getOrderSummariesByUser(Long userId) {
+        userService.getUserById(userId);
+        return orderRepository.findSummariesByUserId(userId);
     }
 
-    public List<Order> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findByOrderDateBetween(startDate, endDate);
+    @Transactional(readOnly = true)
+    public List<OrderSummary> getOrderSummariesByStatus(Order.OrderStatus status) {
+        return orderRepository.findSummariesByStatus(status);
     }
 
+    @RetryOnConflict
     public Order updateOrderStatus(Long orderId, Order.OrderStatus newStatus) {
+        // Confirming and cancelling move stock, so they must go through their own paths
+        if (newStatus == Order.OrderStatus.CONFIRMED) {
+            return confirmOrder(orderId);
+        }
+        if (newStatus == Order.OrderStatus.CANCELLED) {
+            return cancelOrder(orderId);
+        }
         Order order = getOrderById(orderId);
         
         validateStatusTransition(order.getStatus(), newStatus);
@@ -97,33 +341,245 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
+    /**
+     * Turns the order's holds into real stock decrements. An order whose holds expired or were cut down
+     * first holds what is missing again, which only succeeds if the stock left after other PENDING orders'
+     * holds covers it, so it cannot take units those orders are holding. Each decrement is a conditional
+     * update; if any product is short, the whole confirmation rolls back.
+     */
+    @RetryOnConflict
     public Order confirmOrder(Long orderId) {
-        return updateOrderStatus(orderId, Order.OrderStatus.CONFIRMED);
+        Order order = getOrderById(orderId);
+        validateStatusTransition(order.getStatus(), Order.OrderStatus.CONFIRMED);
+        if (order.getStatus() == Order.OrderStatus.CONFIRMED) {
+            return order;
+        }
+
+        Map<Long, Integer> orderedById = new LinkedHashMap<>();
+        Map<Long, String> namesById = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            orderedById.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            namesById.put(item.getProduct().getId(), item.getProduct().getName());
+        }
+        for (Map.Entry<Long, Integer> entry : orderedById.entrySet()) {
+            Long productId = entry.getKey();
+            int missing = entry.getValue() - reservationLedger.heldQuantity(orderId, productId);
+            if (missing <= 0) {
+                continue;
+            }
+            if (!reservationLedger.hold(orderId, productId, missing, productService.getStockLevel(productId))) {
+                throw new IllegalStateException("Insufficient stock for product: " + namesById.get(productId));
+            }
+            afterRollback(() -> reservationLedger.release(orderId, productId, missing));
+        }
+
+        for (OrderItem item : order.getOrderItems()) {
+            Product product = item.getProduct();
+            Long productId = product.getId();
+            int quantity = item.getQuantity();
+            if (!productService.reserveStock(productId, quantity)) {
+                throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+            }
+            afterCommit(() -> inventoryJournal.append(productId, -quantity, InventoryJournal.Reason.SALE, orderId));
+        }
+        order.setStatus(Order.OrderStatus.CONFIRMED);
+        Order savedOrder = orderRepository.save(order);
+        afterCommit(() -> reservationLedger.releaseOrder(orderId));
+        return savedOrder;
     }
 
+    @RetryOnConflict
     public Order shipOrder(Long orderId) {
         return updateOrderStatus(orderId, Order.OrderStatus.SHIPPED);
     }
 
+    @RetryOnConflict
     public Order deliverOrder(Long orderId) {
         return updateOrderStatus(orderId, Order.OrderStatus.DELIVERED);
     }
 
+    /**
+     * Applies a batch of status transitions that move no stock (to SHIPPED or DELIVERED) with one status
+     * read and one conditional update per (current, target) pair. Each transition is checked against the
+     * same rules as {@link #updateOrderStatus}; an order whose status changed between the read and the
+     * update is rejected rather than overwritten. Returns the reason for every rejected order id; orders
+     * that are not in the result were moved.
+     */
+    public Map<Long, String> applyStatusTransitions(Map<Long, Order.OrderStatus> targets) {
+        Map<Long, String> rejections = new HashMap<>();
+        Map<Long, Order.OrderStatus> currentById = new HashMap<>();
+        for (Object[] row : orderRepository.findStatusesByIds(targets.keySet())) {
+            currentById.put((Long) row[0], (Order.OrderStatus) row[1]);
+        }
+
+        Map<List<Order.OrderStatus>, List<Long>> idsByTransition = new HashMap<>();
+        for (Map.Entry<Long, Order.OrderStatus> entry : targets.entrySet()) {
+            Long orderId = entry.getKey();
+            Order.OrderStatus target = entry.getValue();
+            Order.OrderStatus current = currentById.get(orderId);
+            if (current == null) {
+                rejections.put(orderId, "Order not found with id: " + orderId);
+                continue;
+            }
+            if (target != Order.OrderStatus.SHIPPED && target != Order.OrderStatus.DELIVERED) {
+                rejections.put(orderId, "Only SHIPPED and DELIVERED can be applied in a batch, not " + target);
+                continue;
+            }
+            try {
+                validateStatusTransition(current, target);
+            } catch (IllegalStateException e) {
+                rejections.put(orderId, e.getMessage());
+                continue;
+            }
+            if (current != target) {
+                idsByTransition.computeIfAbsent(Arrays.asList(current, target), key -> new ArrayList<>()).add(orderId);
+            }
+        }
+
+        for (Map.Entry<List<Order.OrderStatus>, List<Long>> entry : idsByTransition.entrySet()) {
+            Order.OrderStatus from = entry.getKey().get(0);
+            Order.OrderStatus to = entry.getKey().get(1);
+            List<Long> ids = entry.getValue();
+            if (orderRepository.updateStatus(ids, from, to) == ids.size()) {
+                continue;
+            }
+            // Something else moved some of these orders first; find out which ones this update missed
+            Map<Long, Order.OrderStatus> afterById = new HashMap<>();
+            for (Object[] row : orderRepository.findStatusesByIds(ids)) {
+                afterById.put((Long) row[0], (Order.OrderStatus) row[1]);
+            }
+            for (Long orderId : ids) {
+                Order.OrderStatus after = afterById.get(orderId);
+                if (after != to) {
+                    rejections.put(orderId, after == null
+                            ? "Order not found with id: " + orderId
+                            : "Order status changed concurrently to " + after);
+                }
+            }
+        }
+        return rejections;
+    }
+
+    /**
+     * Moves many orders to a status that moves no stock (SHIPPED or DELIVERED) with set-based updates:
+     * only orders currently in a status that {@link #validateStatusTransition} allows as a predecessor of
+     * the target are changed. Orders are picked either by id, in chunks of ids per statement, or by their
+     * current status and order date range, in a single statement. Returns how many orders moved and,
+     * for an id list, which ids were not moved because they do not exist or are in the wrong status;
+     * ids already in the target status are neither moved nor rejected.
+     */
+    public Map<String, Object> bulkUpdateStatus(BulkStatusRequest request) {
+        if (request == null || request.getTargetStatus() == null) {
+            throw new IllegalArgumentException("Target status is required");
+        }
+        Order.OrderStatus target = request.getTargetStatus();
+        if (target != Order.OrderStatus.SHIPPED && target != Order.OrderStatus.DELIVERED) {
+            throw new IllegalArgumentException("Only SHIPPED and DELIVERED can be applied in bulk, not " + target);
+        }
+        Set<Order.OrderStatus> predecessors = allowedPredecessors(target);
+        boolean byIds = request.getOrderIds() != null && !request.getOrderIds().isEmpty();
+        if (byIds == (request.getCurrentStatus() != null)) {
+            throw new IllegalArgumentException("Either order ids or a current status filter is required, not both");
+        }
+
+        int transitioned = 0;
+        List<Long> rejectedIds = new ArrayList<>();
+        if (byIds) {
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(request.getOrderIds()));
+            if (ids.size() > MAX_BULK_STATUS_IDS) {
+                throw new IllegalArgumentException("At most " + MAX_BULK_STATUS_IDS + " orders can be updated at once");
+            }
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Long> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+                transitioned += orderRepository.updateStatusIn(chunk, predecessors, target);
+                Set<Long> moved = new HashSet<>();
+                for (Object[] row : orderRepository.findStatusesByIds(chunk)) {
+                    if (row[1] == target) {
+                        moved.add((Long) row[0]);
+                    }
+                }
+                for (Long id : chunk) {
+                    if (!moved.contains(id)) {
+                        rejectedIds.add(id);
+                    }
+                }
+            }
+        } else {
+            Order.OrderStatus current = request.getCurrentStatus();
+            validateStatusTransition(current, target);
+            if (current != target) {
+                LocalDateTime startDate = request.getStartDate() != null ? request.getStartDate() : FIRST_ORDER_DATE;
+                LocalDateTime endDate = request.getEndDate() != null ? request.getEndDate() : LAST_ORDER_DATE;
+                transitioned = orderRepository.updateStatusByDateRange(current, startDate, endDate, target);
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("targetStatus", target);
+        result.put("transitioned", transitioned);
+        result.put("rejectedIds", rejectedIds);
+        return result;
+    }
+
+    @RetryOnConflict
     public Order cancelOrder(Long orderId) {
         Order order = getOrderById(orderId);
-        
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            return order;
+        }
         if (order.getStatus() == Order.OrderStatus.SHIPPED || order.getStatus() == Order.OrderStatus.DELIVERED) {
             throw new IllegalStateException("Cannot cancel order that has been shipped or delivered");
         }
 
-        // Restore product stock for cancelled orders
-        if (order.getStatus() == Order.OrderStatus.CONFIRMED) {
-            restoreStockForOrder(order);
+        releaseStock(Collections.singletonList(order));
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        return orderRepository.save(order);
+    }
+
+    /**
+     * Cancels several orders in one transaction, loading them in one query and restoring the stock of all
+     * confirmed ones with a single update. Results follow the request order with a status of CANCELLED,
+     * NOT_FOUND or REJECTED; orders that were already cancelled count as CANCELLED.
+     */
+    @RetryOnConflict
+    public List<Map<String, Object>> cancelOrders(List<Long> orderIds) {
+        validateBatchSize(orderIds);
+        Map<Long, Order> ordersById = new HashMap<>();
+        for (Order order : orderRepository.findAllById(new LinkedHashSet<>(orderIds))) {
+            ordersById.put(order.getId(), order);
+        }
+
+        List<Order> cancelled = new ArrayList<>();
+        for (Order order : ordersById.values()) {
+            if (order.getStatus() == Order.OrderStatus.PENDING || order.getStatus() == Order.OrderStatus.CONFIRMED) {
+                cancelled.add(order);
+            }
+        }
+        releaseStock(cancelled);
+        for (Order order : cancelled) {
+            order.setStatus(Order.OrderStatus.CANCELLED);
         }
+        orderRepository.saveAll(cancelled);
 
-        return updateOrderStatus(orderId, Order.OrderStatus.CANCELLED);
+        List<Map<String, Object>> results = new ArrayList<>(orderIds.size());
+        for (Long id : orderIds) {
+            Order order = ordersById.get(id);
+            Map<String, Object> result = new HashMap<>();
+            result.put("orderId", id);
+            if (order == null) {
+                result.put("status", "NOT_FOUND");
+            } else if (order.getStatus() != Order.OrderStatus.CANCELLED) {
+                result.put("status", "REJECTED");
+                result.put("error", "Cannot cancel order that has been shipped or delivered");
+            } else {
+                result.put("status", "CANCELLED");
+            }
+            results.add(result);
+        }
+        return results;
     }
 
+    @RetryOnConflict
     public void deleteOrder(Long id) {
         Order order = getOrderById(id);
         
@@ -132,14 +588,43 @@ public class OrderService {
         }
 
         orderRepository.deleteById(id);
+        afterCommit(() -> reservationLedger.releaseOrder(id));
     }
 
-    private void restoreStockForOrder(Order order) {
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            Integer restoredStock = product.getStockQuantity() + item.getQuantity();
-            productService.updateStock(product.getId(), restoredStock);
+    /**
+     * Gives back what orders about to be cancelled are holding: confirmed orders have taken their stock
+     * and get it back in one update, pending ones only have holds in the ledger.
+     */
+    private void releaseStock(List<Order> orders) {
+        List<Long> confirmedIds = new ArrayList<>();
+        for (Order order : orders) {
+            Long orderId = order.getId();
+            if (order.getStatus() == Order.OrderStatus.CONFIRMED) {
+                confirmedIds.add(orderId);
+            } else {
+                afterCommit(() -> reservationLedger.releaseOrder(orderId));
+            }
+        }
+        productService.restoreStockForOrders(confirmedIds);
+    }
+
+    /**
+     * Returns every status an order may move to {@code target} from, as decided by {@link #validateStatusTransition}.
+     */
+    private Set<Order.OrderStatus> allowedPredecessors(Order.OrderStatus target) {
+        Set<Order.OrderStatus> predecessors = EnumSet.noneOf(Order.OrderStatus.class);
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            if (status == target) {
+                continue;
+            }
+            try {
+                validateStatusTransition(status, target);
+                predecessors.add(status);
+            } catch (IllegalStateException e) {
+                // not a predecessor
+            }
         }
+        return predecessors;
     }
 
     private void validateStatusTransition(Order.OrderStatus currentStatus, Order.OrderStatus newStatus) {
@@ -169,6 +654,23 @@ public class OrderService {
         }
     }
 
+    private LocalDateTime parseCursorDate(KeysetCursor cursor) {
+        try {
+            return LocalDateTime.parse(cursor.getValue());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor.encode());
+        }
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item is required");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " items can be requested at once");
+        }
+    }
+
     private void validateShippingAddress(String shippingAddress) {
         if (StringUtils.isBlank(shippingAddress)) {
             throw new IllegalArgumentException("Shipping address cannot be blank");
@@ -0,0 +1,128 @@
+package com.ecommerce.legacy.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory stock levels for every product, so availability questions never reach the database.
+ *
+ * Stock is held in a primitive array indexed by product id, alongside a bitmap of the ids that
+ * are known and a bitmap of the ids currently in stock. Product ids come from a sequence and are
+ * dense, so the array stays compact.
+ */
+@Component
+public class ProductAvailabilityIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet known = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private int[] stockById = new int[INITIAL_CAPACITY];
+
+    public void put(Long id, int stock) {
+        int slot = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(slot);
+            stockById[slot] = stock;
+            known.set(slot);
+            inStock.set(slot, stock > 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a relative stock change to a product already in the index; unknown ids are ignored
+     * so a later lookup falls back to the database.
+     */
+    public void adjust(Long id, int delta) {
+        int slot = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            if (known.get(slot)) {
+                int stock = stockById[slot] + delta;
+                stockById[slot] = stock;
+                inStock.set(slot, stock > 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        int slot = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            known.clear(slot);
+            inStock.clear(slot);
+            if (slot < stockById.length) {
+                stockById[slot] = 0;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            known.clear();
+            inStock.clear();
+            stockById = new int[INITIAL_CAPACITY];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return known.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the indexed stock level, or null if the product is not in the index.
+     */
+    public Integer getStock(Long id) {
+        int slot = Math.toIntExact(id);
+        lock.readLock().lock();
+        try {
+            return known.get(slot) ? stockById[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all products with stock, in ascending id order.
+     */
+    public List<Long> inStockIds() {
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(inStock.cardinality());
+            for (int slot = inStock.nextSetBit(0); slot >= 0; slot = inStock.nextSetBit(slot + 1)) {
+                ids.add((long) slot);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot >= stockById.length) {
+            stockById = Arrays.copyOf(stockById, Math.max(slot + 1, stockById.length * 2));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Product;
+import org.apache.commons.collections.map.LRUMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process cache of products keyed by id, with a secondary SKU lookup.
+ * Entries are evicted least-recently-used once the cache is full and expire after a fixed TTL.
+ *
+ * Readers that populate the cache after a database load must take a {@link #stamp()} before the
+ * load and pass it to {@link #putIfCurrent}, so a load that raced with a write never overwrites it.
+ *
+ * The cache keeps its own copy of every product and hands out a fresh copy on each hit, so a caller
+ * that modifies a product it was given cannot change what other readers see.
+ */
+@Component
+public class ProductCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Long> idsBySku = new HashMap<>();
+    private final LRUMap entries;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    @Autowired
+    public ProductCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                        @Value("${product.cache.ttl-seconds:300}") long ttlSeconds) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Product cache size must be greater than zero");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LRUMap(maxSize) {
+            @Override
+            protected boolean removeLRU(LinkEntry entry) {
+                CacheEntry evicted = (CacheEntry) entry.getValue();
+                idsBySku.remove(evicted.product.getSku());
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public synchronized Product get(Long id) {
+        CacheEntry entry = (CacheEntry) entries.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.isExpired()) {
+            remove(id);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(entry.product);
+    }
+
+    public synchronized Product getBySku(String sku) {
+        Long id = idsBySku.get(sku);
+        if (id == null) {
+            misses++;
+            return null;
+        }
+        return get(id);
+    }
+
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    /**
+     * Stores a product that was just written, replacing any cached copy.
+     */
+    public synchronized void put(Product product) {
+        generation++;
+        store(product);
+    }
+
+    /**
+     * Stores a product loaded from the database, unless a write or eviction happened since {@code stamp}.
+     */
+    public synchronized void putIfCurrent(Product product, long stamp) {
+        if (generation == stamp) {
+            store(product);
+        }
+    }
+
+    public synchronized void evict(Long id) {
+        generation++;
+        remove(id);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        idsBySku.clear();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long requests = hits + misses;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hits / requests);
+        return stats;
+    }
+
+    private void store(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        remove(product.getId());
+        entries.put(product.getId(), new CacheEntry(copy(product), System.nanoTime() + ttlNanos));
+        if (product.getSku() != null) {
+            idsBySku.put(product.getSku(), product.getId());
+        }
+    }
+
+    private void remove(Long id) {
+        CacheEntry removed = (CacheEntry) entries.remove(id);
+        if (removed != null && removed.product.getSku() != null) {
+            idsBySku.remove(removed.product.getSku(), id);
+        }
+    }
+
+    private static Product copy(Product product) {
+        Product copy = new Product(product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity(), product.getCategory(), product.getSku());
+        copy.setId(product.getId());
+        copy.setReservedQuantity(product.getReservedQuantity());
+        copy.setImageUrl(product.getImageUrl());
+        copy.setCreatedAt(product.getCreatedAt());
+        copy.setUpdatedAt(product.getUpdatedAt());
+        copy.setVersion(product.getVersion());
+        return copy;
+    }
+
+    private static final class CacheEntry {
+        private final Product product;
+        private final long expiresAtNanos;
+
+        private CacheEntry(Product product, long expiresAtNanos) {
+            this.product = product;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams products from an NDJSON or CSV body into the catalog.
+ *
+ * Rows are read one line at a time and written in batches: each batch checks its SKUs with a
+ * single query, is inserted in its own transaction so Hibernate can use JDBC batching, and is
+ * then cleared from the persistence context so memory stays flat however large the file is.
+ * Rows that fail validation are reported by line number and do not stop the import.
+ */
+@Service
+public class ProductImportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    @Autowired
+    public ProductImportService(ProductRepository productRepository, ProductService productService,
+                                EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper, Validator validator,
+                                @Value("${product.import.batch-size:500}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Import batch size must be greater than zero");
+        }
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public Map<String, Object> importProducts(InputStream body, String format) throws IOException {
+        if (!FORMAT_NDJSON.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+        ImportReport report = new ImportReport();
+        long startNanos = System.nanoTime();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Set<String> seenSkus = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        String[] csvHeader = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            if (FORMAT_CSV.equals(format) && csvHeader == null) {
+                csvHeader = parseCsvHeader(line);
+                continue;
+            }
+
+            Product product;
+            try {
+                product = FORMAT_CSV.equals(format) ? parseCsvRow(csvHeader, line) : parseJsonRow(line);
+                validateRow(product);
+            } catch (IllegalArgumentException e) {
+                report.fail(lineNumber, null, e.getMessage());
+                continue;
+            }
+            if (!seenSkus.add(product.getSku())) {
+                report.fail(lineNumber, product.getSku(), "Duplicate SKU in import: " + product.getSku());
+                continue;
+            }
+
+            batch.add(new ImportRow(lineNumber, product));
+            if (batch.size() == batchSize) {
+                writeBatch(batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, report);
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return report.toMap(elapsedNanos);
+    }
+
+    private void writeBatch(List<ImportRow> batch, ImportReport report) {
+        Set<String> skus = new HashSet<>();
+        for (ImportRow row : batch) {
+            skus.add(row.product.getSku());
+        }
+        Set<String> existingSkus = new HashSet<>(productRepository.findExistingSkus(skus));
+
+        List<Product> products = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (existingSkus.contains(row.product.getSku())) {
+                report.fail(row.lineNumber, row.product.getSku(), "Product with SKU " + row.product.getSku() + " already exists");
+            } else {
+                products.add(row.product);
+            }
+        }
+        if (products.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Product> saved = transactionTemplate.execute(status -> {
+                List<Product> inserted = productRepository.saveAll(products);
+                entityManager.flush();
+                entityManager.clear();
+                return inserted;
+            });
+            productService.indexProducts(saved);
+            report.imported += saved.size();
+        } catch (RuntimeException e) {
+            // A concurrent insert of the same SKU fails the whole batch; report every row in it
+            entityManager.clear();
+            String message = "Batch insert failed: " + StringUtils.defaultString(e.getMessage(), e.getClass().getSimpleName());
+            for (ImportRow row : batch) {
+                if (!existingSkus.contains(row.product.getSku())) {
+                    report.fail(row.lineNumber, row.product.getSku(), message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the {@link ProductService} rules, then the entity constraints that would otherwise
+     * fail the whole batch at flush time.
+     */
+    private void validateRow(Product product) {
+        productService.validateProduct(product);
+        for (ConstraintViolation<Product> violation : validator.validate(product)) {
+            throw new IllegalArgumentException(violation.getMessage());
+        }
+    }
+
+    private Product parseJsonRow(String line) {
+        try {
+            Product product = objectMapper.readValue(line, Product.class);
+            product.setId(null);
+            return product;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private String[] parseCsvHeader(String line) {
+        List<String> columns = parseCsvLine(line);
+        String[] header = new String[columns.size()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = StringUtils.trim(columns.get(i));
+        }
+        if (!contains(header, "name") || !contains(header, "price") || !contains(header, "sku")) {
+            throw new IllegalArgumentException("CSV header must include name, price and sku columns");
+        }
+        return header;
+    }
+
+    private Product parseCsvRow(String[] header, String line) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("Expected " + header.length + " columns but found " + values.size());
+        }
+        Product product = new Product();
+        for (int i = 0; i < header.length; i++) {
+            String value = StringUtils.trimToNull(values.get(i));
+            switch (header[i]) {
+                case "name":
+                    product.setName(value);
+                    break;
+                case "description":
+                    product.setDescription(value);
+                    break;
+                case "price":
+                    if (value != null && !NumberUtils.isCreatable(value)) {
+                        throw new IllegalArgumentException("Invalid price: " + value);
+                    }
+                    product.setPrice(value == null ? null : new BigDecimal(value));
+                    break;
+                case "stockQuantity":
+                    if (value != null && !NumberUtils.isDigits(value)) {
+                        throw new IllegalArgumentException("Invalid stock quantity: " + value);
+                    }
+                    product.setStockQuantity(value == null ? null : Integer.valueOf(value));
+                    break;
+                case "category":
+                    product.setCategory(value);
+                    break;
+                case "sku":
+                    product.setSku(value);
+                    break;
+                case "imageUrl":
+                    product.setImageUrl(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Splits one CSV record. Fields may be double-quoted to contain commas, with {@code ""} for a literal quote.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String candidate : values) {
+            if (value.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class ImportRow {
+        private final int lineNumber;
+        private final Product product;
+
+        private ImportRow(int lineNumber, Product product) {
+            this.lineNumber = lineNumber;
+            this.product = product;
+        }
+    }
+
+    private static final class ImportReport {
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        private void fail(int lineNumber, String sku, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("line", lineNumber);
+                error.put("sku", sku);
+                error.put("error", message);
+                errors.add(error);
+            }
+        }
+
+        private Map<String, Object> toMap(long elapsedNanos) {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            Map<String, Object> report = new HashMap<>();
+            report.put("imported", imported);
+            report.put("failed", failed);
+            report.put("errors", errors);
+            report.put("errorsTruncated", failed > errors.size());
+            report.put("elapsedMs", elapsedMs);
+            report.put("rowsPerSecond", seconds == 0 ? 0.0 : (imported + failed) / seconds);
+            return report;
+        }
+    }
+}
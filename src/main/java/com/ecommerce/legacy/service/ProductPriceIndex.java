@@ -0,0 +1,262 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Money;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory price index answering price range queries by binary search.
+ *
+ * Prices are held as long cents in a sorted primitive array with parallel id and category arrays,
+ * ordered by (cents, id). The arrays are immutable snapshots: readers never lock, and writers
+ * build and publish a new snapshot, so a batch of changes costs one pass over the catalog. Writes
+ * that leave every price and category as it was, such as a stock or description update, cost nothing.
+ */
+@Component
+public class ProductPriceIndex {
+
+    private static final int NO_CATEGORY = -1;
+
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final Map<Long, Long> centsById = new HashMap<>();
+    private final Map<Long, Integer> categoriesById = new HashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new long[0], new long[0], new int[0]);
+
+    public void put(Long id, BigDecimal price, String category) {
+        apply(Collections.singletonList(new Entry(id, price, category)), Collections.emptyList());
+    }
+
+    public void putAll(Collection<Entry> entries) {
+        apply(entries, Collections.emptyList());
+    }
+
+    public void remove(Long id) {
+        apply(Collections.emptyList(), Collections.singletonList(id));
+    }
+
+    public synchronized void clear() {
+        centsById.clear();
+        categoriesById.clear();
+        snapshot = new Snapshot(new long[0], new long[0], new int[0]);
+    }
+
+    public int size() {
+        return snapshot.ids.length;
+    }
+
+    /**
+     * Returns up to {@code limit} product ids priced within [minPrice, maxPrice], cheapest first,
+     * optionally restricted to one category.
+     */
+    public List<Long> findIds(BigDecimal minPrice, BigDecimal maxPrice, String category, int limit) {
+        Snapshot current = snapshot;
+        long minCents = minPrice.setScale(Money.SCALE, RoundingMode.CEILING).unscaledValue().longValueExact();
+        long maxCents = maxPrice.setScale(Money.SCALE, RoundingMode.FLOOR).unscaledValue().longValueExact();
+        int categoryOrdinal = NO_CATEGORY;
+        if (category != null) {
+            Integer ordinal = ordinalOf(category);
+            if (ordinal == null) {
+                return Collections.emptyList();
+            }
+            categoryOrdinal = ordinal;
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 256));
+        for (int i = current.lowerBound(minCents); i < current.cents.length && ids.size() < limit; i++) {
+            if (current.cents[i] > maxCents) {
+                break;
+            }
+            if (categoryOrdinal == NO_CATEGORY || current.categories[i] == categoryOrdinal) {
+                ids.add(current.ids[i]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Removes every id in {@code removals} or {@code upserts} from the current snapshot and merges the
+     * upserts back in at their new price, publishing the result as the next snapshot. Nothing is
+     * rebuilt when no id is removed and every upsert matches what the index already holds.
+     */
+    private synchronized void apply(Collection<Entry> upserts, Collection<Long> removals) {
+        Snapshot current = snapshot;
+        List<Integer> stalePositions = new ArrayList<>();
+        for (Long id : removals) {
+            Long previousCents = centsById.remove(id);
+            if (previousCents != null) {
+                categoriesById.remove(id);
+                stalePositions.add(current.positionOf(previousCents, id));
+            }
+        }
+        upserts = changedEntries(upserts);
+        if (upserts.isEmpty() && stalePositions.isEmpty()) {
+            return;
+        }
+
+        long[] addedCents = new long[upserts.size()];
+        long[] addedIds = new long[upserts.size()];
+        int[] addedCategories = new int[upserts.size()];
+        Map<Long, Integer> latestById = new HashMap<>();
+        int added = 0;
+        for (Entry entry : upserts) {
+            Integer previousSlot = latestById.put(entry.id, added);
+            Long previousCents = centsById.put(entry.id, entry.cents);
+            if (previousSlot == null && previousCents != null) {
+                stalePositions.add(current.positionOf(previousCents, entry.id));
+            }
+            addedCents[added] = entry.cents;
+            addedIds[added] = entry.id;
+            addedCategories[added] = ordinalFor(entry.category);
+            categoriesById.put(entry.id, addedCategories[added]);
+            added++;
+        }
+        Integer[] order = sortedSlots(addedCents, addedIds, latestById);
+        Collections.sort(stalePositions);
+
+        int capacity = current.ids.length - stalePositions.size() + order.length;
+        long[] cents = new long[capacity];
+        long[] ids = new long[capacity];
+        int[] categories = new int[capacity];
+        int size = 0;
+        int next = 0;
+        int nextStale = 0;
+        for (int i = 0; i < current.ids.length; i++) {
+            if (nextStale < stalePositions.size() && stalePositions.get(nextStale) == i) {
+                nextStale++;
+                continue;
+            }
+            while (next < order.length && compare(addedCents[order[next]], addedIds[order[next]], current.cents[i], current.ids[i]) < 0) {
+                int slot = order[next++];
+                cents[size] = addedCents[slot];
+                ids[size] = addedIds[slot];
+                categories[size++] = addedCategories[slot];
+            }
+            cents[size] = current.cents[i];
+            ids[size] = current.ids[i];
+            categories[size++] = current.categories[i];
+        }
+        while (next < order.length) {
+            int slot = order[next++];
+            cents[size] = addedCents[slot];
+            ids[size] = addedIds[slot];
+            categories[size++] = addedCategories[slot];
+        }
+        snapshot = new Snapshot(cents, ids, categories);
+    }
+
+    /**
+     * Keeps the latest upsert for each id, dropping those whose price and category the index already holds.
+     */
+    private List<Entry> changedEntries(Collection<Entry> upserts) {
+        Map<Long, Entry> latestById = new LinkedHashMap<>();
+        for (Entry entry : upserts) {
+            latestById.put(entry.id, entry);
+        }
+        List<Entry> changed = new ArrayList<>(latestById.size());
+        for (Entry entry : latestById.values()) {
+            Long cents = centsById.get(entry.id);
+            Integer category = entry.category == null ? Integer.valueOf(NO_CATEGORY) : categoryOrdinals.get(entry.category);
+            if (cents == null || cents != entry.cents || category == null || !category.equals(categoriesById.get(entry.id))) {
+                changed.add(entry);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Sorts the latest upsert for each id by (cents, id); earlier upserts of the same id are dropped.
+     */
+    private static Integer[] sortedSlots(long[] cents, long[] ids, Map<Long, Integer> latestById) {
+        Integer[] slots = latestById.values().toArray(new Integer[0]);
+        Arrays.sort(slots, (left, right) -> compare(cents[left], ids[left], cents[right], ids[right]));
+        return slots;
+    }
+
+    private static int compare(long leftCents, long leftId, long rightCents, long rightId) {
+        int byCents = Long.compare(leftCents, rightCents);
+        return byCents != 0 ? byCents : Long.compare(leftId, rightId);
+    }
+
+    private synchronized Integer ordinalOf(String category) {
+        return categoryOrdinals.get(category);
+    }
+
+    private int ordinalFor(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        return categoryOrdinals.computeIfAbsent(category, name -> categoryOrdinals.size());
+    }
+
+    public static final class Entry {
+        private final Long id;
+        private final long cents;
+        private final String category;
+
+        public Entry(Long id, BigDecimal price, String category) {
+            this.id = id;
+            this.cents = Money.toCents(price);
+            this.category = category;
+        }
+    }
+
+    private static final class Snapshot {
+        private final long[] cents;
+        private final long[] ids;
+        private final int[] categories;
+
+        private Snapshot(long[] cents, long[] ids, int[] categories) {
+            this.cents = cents;
+            this.ids = ids;
+            this.categories = categories;
+        }
+
+        /**
+         * Position of the entry for {@code id}, which must be present at {@code entryCents}.
+         */
+        private int positionOf(long entryCents, long id) {
+            int low = 0;
+            int high = ids.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compare(cents[mid], ids[mid], entryCents, id);
+                if (comparison < 0) {
+                    low = mid + 1;
+                } else if (comparison > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            throw new IllegalStateException("Price index is missing product " + id);
+        }
+
+        /**
+         * Index of the first entry priced at or above {@code minCents}.
+         */
+        private int lowerBound(long minCents) {
+            int low = 0;
+            int high = cents.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cents[mid] < minCents) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
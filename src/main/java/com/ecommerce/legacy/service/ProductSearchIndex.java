@@ -0,0 +1,369 @@
+package com.ecommerce.legacy.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index used by product search.
+ *
+ * Names are indexed by trigram so any substring of a name can be found, matching the old
+ * {@code LIKE %name%} behaviour. Descriptions are indexed by whole word to keep memory bounded
+ * for long descriptions. Every query term must match either the name or a description word;
+ * results are ranked with name matches ahead of description matches.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int NAME_MATCH_SCORE = 10;
+    private static final int NAME_WORD_START_SCORE = 5;
+    private static final int DESCRIPTION_MATCH_SCORE = 3;
+    private static final int PHRASE_MATCH_SCORE = 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> nameGrams = new HashMap<>();
+    private final Map<String, Postings> descriptionWords = new HashMap<>();
+    private final Map<Integer, IndexedProduct> products = new HashMap<>();
+
+    public void index(Long id, String name, String description) {
+        int docId = Math.toIntExact(id);
+        String normalizedName = normalize(name);
+        Set<String> words = new TreeSet<>(Arrays.asList(StringUtils.split(normalize(description))));
+        lock.writeLock().lock();
+        try {
+            IndexedProduct previous = products.remove(docId);
+            if (previous != null) {
+                unlink(docId, previous);
+            }
+            for (String gram : paddedNameGrams(normalizedName)) {
+                nameGrams.computeIfAbsent(gram, Postings::new).add(docId);
+            }
+            // Keep the shared key instance of each word so products do not each hold their own copy
+            String[] canonicalWords = new String[words.size()];
+            int i = 0;
+            for (String word : words) {
+                Postings postings = descriptionWords.computeIfAbsent(word, Postings::new);
+                postings.add(docId);
+                canonicalWords[i++] = postings.key;
+            }
+            products.put(docId, new IndexedProduct(normalizedName, canonicalWords));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        int docId = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            IndexedProduct previous = products.remove(docId);
+            if (previous != null) {
+                unlink(docId, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            nameGrams.clear();
+            descriptionWords.clear();
+            products.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best matching products, highest score first, at most {@code limit} of them.
+     */
+    public List<Long> search(String query, int limit) {
+        String phrase = normalize(query);
+        List<String> terms = new ArrayList<>(new HashSet<>(Arrays.asList(StringUtils.split(phrase))));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<int[]> candidatesPerTerm = new ArrayList<>();
+            for (String term : terms) {
+                int[] candidates = nameCandidates(term);
+                Postings descriptionPostings = descriptionWords.get(term);
+                if (descriptionPostings != null) {
+                    candidates = union(candidates, descriptionPostings.ids, descriptionPostings.size);
+                }
+                if (candidates.length == 0) {
+                    return Collections.emptyList();
+                }
+                candidatesPerTerm.add(candidates);
+            }
+            // Start from the rarest term so the candidate list shrinks as quickly as possible
+            candidatesPerTerm.sort(Comparator.comparingInt(candidates -> candidates.length));
+            int[] candidates = candidatesPerTerm.get(0);
+            for (int i = 1; i < candidatesPerTerm.size() && candidates.length > 0; i++) {
+                candidates = intersect(candidates, candidatesPerTerm.get(i), candidatesPerTerm.get(i).length);
+            }
+            return rank(candidates, terms, phrase, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> rank(int[] candidates, List<String> terms, String phrase, int limit) {
+        Comparator<ScoredProduct> worstFirst = Comparator.<ScoredProduct>comparingInt(scored -> scored.score)
+                .thenComparing(Comparator.<ScoredProduct>comparingInt(scored -> scored.nameLength).reversed())
+                .thenComparing(Comparator.<ScoredProduct>comparingInt(scored -> scored.docId).reversed());
+        PriorityQueue<ScoredProduct> top = new PriorityQueue<>(worstFirst);
+
+        for (int docId : candidates) {
+            IndexedProduct indexed = products.get(docId);
+            int score = score(indexed, terms, phrase);
+            if (score == 0) {
+                continue;
+            }
+            top.add(new ScoredProduct(docId, score, indexed.name.length()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add((long) top.poll().docId);
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    /**
+     * Scores a candidate, or returns 0 if a term only matched through a trigram false positive.
+     */
+    private int score(IndexedProduct indexed, List<String> terms, String phrase) {
+        int score = 0;
+        for (String term : terms) {
+            int position = indexed.name.indexOf(term);
+            if (position >= 0) {
+                score += NAME_MATCH_SCORE;
+                if (position == 0 || indexed.name.charAt(position - 1) == ' ') {
+                    score += NAME_WORD_START_SCORE;
+                }
+            } else if (Arrays.binarySearch(indexed.descriptionWords, term) >= 0) {
+                score += DESCRIPTION_MATCH_SCORE;
+            } else {
+                return 0;
+            }
+        }
+        if (terms.size() > 1 && indexed.name.contains(phrase)) {
+            score += PHRASE_MATCH_SCORE;
+        }
+        return score;
+    }
+
+    private int[] nameCandidates(String term) {
+        if (term.length() < GRAM_LENGTH) {
+            // Too short to form a trigram: take every product whose name has a trigram containing the term
+            BitSet matches = new BitSet();
+            for (Map.Entry<String, Postings> entry : nameGrams.entrySet()) {
+                if (entry.getKey().contains(term)) {
+                    Postings gramPostings = entry.getValue();
+                    for (int i = 0; i < gramPostings.size; i++) {
+                        matches.set(gramPostings.ids[i]);
+                    }
+                }
+            }
+            return matches.stream().toArray();
+        }
+        List<Postings> postings = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Postings gramPostings = nameGrams.get(gram);
+            if (gramPostings == null) {
+                return new int[0];
+            }
+            postings.add(gramPostings);
+        }
+        postings.sort(Comparator.comparingInt(gramPostings -> gramPostings.size));
+        int[] candidates = postings.get(0).toArray();
+        for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, postings.get(i).ids, postings.get(i).size);
+        }
+        return candidates;
+    }
+
+    private void unlink(int docId, IndexedProduct indexed) {
+        for (String gram : paddedNameGrams(indexed.name)) {
+            removePosting(nameGrams, gram, docId);
+        }
+        for (String word : indexed.descriptionWords) {
+            removePosting(descriptionWords, word, docId);
+        }
+    }
+
+    private static void removePosting(Map<String, Postings> index, String key, int docId) {
+        Postings postings = index.get(key);
+        if (postings != null && postings.remove(docId) && postings.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Names are padded so that names shorter than a trigram, and their first and last letters, are still indexed.
+     */
+    private static Set<String> paddedNameGrams(String name) {
+        return grams(" " + name + " ");
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return StringUtils.normalizeSpace(StringUtils.defaultString(text)).toLowerCase(Locale.ROOT);
+    }
+
+    private static int[] intersect(int[] left, int[] right, int rightSize) {
+        int[] result = new int[Math.min(left.length, rightSize)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length && j < rightSize) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] union(int[] left, int[] right, int rightSize) {
+        if (rightSize == 0) {
+            return left;
+        }
+        int[] result = new int[left.length + rightSize];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length || j < rightSize) {
+            if (j == rightSize || (i < left.length && left[i] < right[j])) {
+                result[size++] = left[i++];
+            } else if (i == left.length || right[j] < left[i]) {
+                result[size++] = right[j++];
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Sorted, growable list of product ids. Appends are O(1) when ids arrive in ascending order,
+     * which is the case during the startup build.
+     */
+    private static final class Postings {
+        private final String key;
+        private int[] ids = new int[4];
+        private int size;
+
+        private Postings(String key) {
+            this.key = key;
+        }
+
+        private void add(int docId) {
+            if (size > 0 && ids[size - 1] >= docId) {
+                int position = Arrays.binarySearch(ids, 0, size, docId);
+                if (position >= 0) {
+                    return;
+                }
+                insertAt(-position - 1, docId);
+                return;
+            }
+            insertAt(size, docId);
+        }
+
+        private boolean remove(int docId) {
+            int position = Arrays.binarySearch(ids, 0, size, docId);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        private void insertAt(int position, int docId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = docId;
+            size++;
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final String name;
+        private final String[] descriptionWords;
+
+        private IndexedProduct(String name, String[] descriptionWords) {
+            this.name = name;
+            this.descriptionWords = descriptionWords;
+        }
+    }
+
+    private static final class ScoredProduct {
+        private final int docId;
+        private final int score;
+        private final int nameLength;
+
+        private ScoredProduct(int docId, int score, int nameLength) {
+            this.docId = docId;
+            this.score = score;
+            this.nameLength = nameLength;
+        }
+    }
+}
@@ -1,25 +1,107 @@
 package com.ecommerce.legacy.service;
 
+import com.ecommerce.legacy.model.AvailabilityRequest;
+import com.ecommerce.legacy.model.Money;
 import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.ProductSummary;
 import com.ecommerce.legacy.repository.ProductRepository;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+import static com.ecommerce.legacy.service.TransactionCallbacks.afterCommit;
+import static com.ecommerce.legacy.service.TransactionCallbacks.afterRollback;
 
 @Service
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Seek values that sort before every real row, used when no cursor is given
+    private static final String FIRST_NAME = "";
+    private static final BigDecimal FIRST_PRICE = new BigDecimal("-1");
+
+    // Bounds of the products.price column, used when a facet query leaves the price range open
+    private static final BigDecimal MIN_PRICE = BigDecimal.ZERO;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    private static final int MAX_HISTOGRAM_BUCKETS = 50;
+
+    private static final int MAX_HOT_COUNTERS = 256;
+
+    // Most ids or lines accepted by one bulk lookup or availability check
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // Upper bound on ids per findAllById call, keeping the generated IN list a sensible size
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductPriceIndex productPriceIndex;
+    private final ProductAvailabilityIndex productAvailabilityIndex;
+    private final ReservationLedger reservationLedger;
+    private final HotStockCounters hotStockCounters;
+    private final InventoryJournal inventoryJournal;
+    private final ConflictRetryAspect conflictRetryAspect;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductCache productCache,
+                          ProductSearchIndex productSearchIndex, ProductPriceIndex productPriceIndex,
+                          ProductAvailabilityIndex productAvailabilityIndex, ReservationLedger reservationLedger,
+                          HotStockCounters hotStockCounters, InventoryJournal inventoryJournal,
+                          ConflictRetryAspect conflictRetryAspect) {
         this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.productSearchIndex = productSearchIndex;
+        this.productPriceIndex = productPriceIndex;
+        this.productAvailabilityIndex = productAvailabilityIndex;
+        this.reservationLedger = reservationLedger;
+        this.hotStockCounters = hotStockCounters;
+        this.inventoryJournal = inventoryJournal;
+        this.conflictRetryAspect = conflictRetryAspect;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildIndexes() {
+        productSearchIndex.clear();
+        productPriceIndex.clear();
+        productAvailabilityIndex.clear();
+        List<ProductPriceIndex.Entry> prices = new ArrayList<>();
+        try (Stream<Object[]> rows = productRepository.streamIndexFields()) {
+            rows.forEach(row -> {
+                Long id = (Long) row[0];
+                productSearchIndex.index(id, (String) row[1], (String) row[2]);
+                prices.add(new ProductPriceIndex.Entry(id, (BigDecimal) row[3], (String) row[4]));
+                productAvailabilityIndex.put(id, (Integer) row[5]);
+            });
+        }
+        productPriceIndex.putAll(prices);
     }
 
     public Product createProduct(Product product) {
@@ -27,17 +109,53 @@ public class ProductService {
         if (productRepository.existsBySku(product.getSku())) {
             throw new IllegalArgumentException("Product with SKU already exists: " + product.getSku());
         }
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        indexProduct(savedProduct);
+        journal(savedProduct.getId(), savedProduct.getStockQuantity(), InventoryJournal.Reason.INITIAL, null);
+        return savedProduct;
     }
 
     public Product getProductById(Long id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
+        Product cached = productCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = productCache.stamp();
+        Product product = loadProduct(id);
+        productCache.putIfCurrent(product, stamp);
+        return product;
     }
 
     public Product getProductBySku(String sku) {
-        return productRepository.findBySku(sku)
+        Product cached = productCache.getBySku(sku);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = productCache.stamp();
+        Product product = productRepository.findBySku(sku)
                 .orElseThrow(() -> new EntityNotFoundException("Product not found with SKU: " + sku));
+        productCache.putIfCurrent(product, stamp);
+        return product;
+    }
+
+    /**
+     * Returns the product's last update time, from the cache when possible and otherwise without
+     * loading the row. Returns null when the product is unknown.
+     */
+    public LocalDateTime getProductVersion(Long id) {
+        Product cached = productCache.get(id);
+        if (cached != null) {
+            return cached.getUpdatedAt();
+        }
+        return productRepository.findUpdatedAtById(id).orElse(null);
+    }
+
+    public LocalDateTime getProductVersionBySku(String sku) {
+        Product cached = productCache.getBySku(sku);
+        if (cached != null) {
+            return cached.getUpdatedAt();
+        }
+        return productRepository.findUpdatedAtBySku(sku).orElse(null);
     }
 
     public List<Product> getAllProducts() {
@@ -48,6 +166,26 @@ public class ProductService {
         return productRepository.findAll(pageable);
     }
 
+    @Transactional(readOnly = true)
+    public List<ProductSummary> getAllProductSummaries() {
+        return productRepository.findAllSummaries();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductSummary> getProductSummariesPaginated(Pageable pageable) {
+        return productRepository.findAllSummaries(pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductSummary> getProductSummariesByCategory(String category) {
+        return productRepository.findSummariesByCategory(category);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductSummary> getProductSummariesByCategoryPaginated(String category, Pageable pageable) {
+        return productRepository.findSummariesByCategory(category, pageable);
+    }
+
     public List<Product> getProductsByCategory(String category) {
         return productRepository.findByCategory(category);
     }
@@ -56,24 +194,250 @@ public class ProductService {
         return productRepository.findByCategory(category, pageable);
     }
 
-    public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameContaining(name);
+    /**
+     * Returns the page after {@code cursor} ordered by (sortBy, id), optionally within one category.
+     * Seeks on the last row of the previous page, so deep pages cost the same as the first.
+     */
+    public Slice<Product> getProductsAfter(String category, String sortBy, String cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        KeysetCursor after = StringUtils.isBlank(cursor) ? null : KeysetCursor.decode(cursor, sortBy);
+        Long lastId = after == null ? 0L : after.getId();
+        // Fetch one extra row to find out whether another page follows
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<Product> rows;
+        switch (sortBy) {
+            case KeysetCursor.SORT_BY_ID:
+                rows = category == null
+                        ? productRepository.findPageAfterId(lastId, limit)
+                        : productRepository.findCategoryPageAfterId(category, lastId, limit);
+                break;
+            case KeysetCursor.SORT_BY_NAME:
+                String lastName = after == null ? FIRST_NAME : after.getValue();
+                rows = category == null
+                        ? productRepository.findPageAfterName(lastName, lastId, limit)
+                        : productRepository.findCategoryPageAfterName(category, lastName, lastId, limit);
+                break;
+            case KeysetCursor.SORT_BY_PRICE:
+                BigDecimal lastPrice = after == null ? FIRST_PRICE : new BigDecimal(after.getValue());
+                rows = category == null
+                        ? productRepository.findPageAfterPrice(lastPrice, lastId, limit)
+                        : productRepository.findCategoryPageAfterPrice(category, lastPrice, lastId, limit);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sort key: " + sortBy);
+        }
+
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.of(0, size), hasNext);
+    }
+
+    /**
+     * Builds a catalog listing page in a single pass over (id, category, price) rows: one page of matching
+     * products, per-category counts and a price histogram. Category counts ignore the category filter so
+     * the storefront can show how many products each other category would have.
+     *
+     * With {@code inStockOnly}, a product counts as in stock when its available stock is positive, the same
+     * stock {@link #checkAvailability} reports: its hot counters or availability index entry, less the units
+     * held for PENDING orders. The rows are first narrowed to those with stock in the database, so a hot
+     * product whose row is at zero but whose counters were given stock back shows up once it is reconciled.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getFacetedProducts(String query, String category, BigDecimal minPrice,
+                                                  BigDecimal maxPrice, boolean inStockOnly,
+                                                  int page, int size, int buckets) {
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (buckets <= 0 || buckets > MAX_HISTOGRAM_BUCKETS) {
+            throw new IllegalArgumentException("Histogram buckets must be between 1 and " + MAX_HISTOGRAM_BUCKETS);
+        }
+        BigDecimal lowerPrice = minPrice == null ? MIN_PRICE : minPrice;
+        BigDecimal upperPrice = maxPrice == null ? MAX_PRICE : maxPrice;
+        if (lowerPrice.compareTo(upperPrice) > 0) {
+            throw new IllegalArgumentException("Minimum price must not be greater than maximum price");
+        }
+
+        List<Long> rankedIds = StringUtils.isBlank(query) ? null : productSearchIndex.search(query, Integer.MAX_VALUE);
+        Set<Long> textMatches = rankedIds == null ? null : new HashSet<>(rankedIds);
+
+        Map<String, Long> categoryCounts = new TreeMap<>();
+        List<Long> matchingIds = new ArrayList<>();
+        long[] matchingCents = new long[64];
+        int matches = 0;
+        try (Stream<Object[]> rows = inStockOnly
+                ? productRepository.streamInStockFacetFields(lowerPrice, upperPrice)
+                : productRepository.streamFacetFields(lowerPrice, upperPrice)) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                Long id = (Long) row[0];
+                if (textMatches != null && !textMatches.contains(id)) {
+                    continue;
+                }
+                if (inStockOnly && availableStock(id, (Integer) row[3]) <= 0) {
+                    continue;
+                }
+                String productCategory = (String) row[1];
+                categoryCounts.merge(productCategory, 1L, Long::sum);
+                if (category != null && !category.equals(productCategory)) {
+                    continue;
+                }
+                if (matches == matchingCents.length) {
+                    matchingCents = Arrays.copyOf(matchingCents, matches * 2);
+                }
+                matchingCents[matches++] = Money.toCents((BigDecimal) row[2]);
+                matchingIds.add(id);
+            }
+        }
+
+        // Text searches list results by relevance, everything else by id
+        List<Long> orderedIds = matchingIds;
+        if (rankedIds != null) {
+            Set<Long> matched = new HashSet<>(matchingIds);
+            orderedIds = new ArrayList<>(matchingIds.size());
+            for (Long id : rankedIds) {
+                if (matched.contains(id)) {
+                    orderedIds.add(id);
+                }
+            }
+        }
+        int fromIndex = (int) Math.min((long) page * size, orderedIds.size());
+        int toIndex = Math.min(fromIndex + size, orderedIds.size());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", getProductsInOrder(orderedIds.subList(fromIndex, toIndex)));
+        result.put("page", page);
+        result.put("size", size);
+        result.put("totalElements", matches);
+        result.put("categories", categoryCounts);
+        result.put("priceHistogram", buildPriceHistogram(matchingCents, matches, buckets));
+        return result;
+    }
+
+    public List<Product> searchProductsByName(String name, int limit) {
+        return getProductsInOrder(productSearchIndex.search(name, limit));
     }
 
-    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return productRepository.findByPriceBetween(minPrice, maxPrice);
+    /**
+     * Returns up to {@code limit} products priced within [minPrice, maxPrice], cheapest first,
+     * answered from the in-memory price index. {@code category} is optional.
+     */
+    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, String category, int limit) {
+        if (minPrice == null || maxPrice == null || minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("Minimum price must not be greater than maximum price");
+        }
+        return getProductsInOrder(productPriceIndex.findIds(minPrice, maxPrice, category, limit));
     }
 
-    public List<Product> getAvailableProducts() {
-        return productRepository.findAvailableProducts();
+    /**
+     * Looks up several products at once. Results follow the request order, one entry per requested id,
+     * with a status of FOUND or NOT_FOUND.
+     */
+    public List<Map<String, Object>> getProductsByIds(List<Long> ids) {
+        validateBatchSize(ids);
+        Map<Long, Product> productsById = getProductsById(ids);
+
+        List<Map<String, Object>> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = productsById.get(id);
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", id);
+            result.put("status", product != null ? "FOUND" : "NOT_FOUND");
+            result.put("product", product);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the products with the given ids by id, from the cache where possible and otherwise in one
+     * query per chunk of ids. Unknown ids are left out.
+     */
+    public Map<Long, Product> getProductsById(Collection<Long> ids) {
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : getProductsInOrder(new ArrayList<>(new LinkedHashSet<>(ids)))) {
+            productsById.put(product.getId(), product);
+        }
+        return productsById;
+    }
+
+    /**
+     * Checks each line against current stock, less any units held for PENDING orders, independently.
+     * Stock comes from the same place as {@link #getStockLevel}, the hot stock counters or the availability
+     * index, with any products neither holds loaded in one query.
+     * Results follow the request order with a status of AVAILABLE, INSUFFICIENT_STOCK, NOT_FOUND or INVALID.
+     */
+    public List<Map<String, Object>> checkAvailability(List<AvailabilityRequest> lines) {
+        validateBatchSize(lines);
+        Map<Long, Integer> stockById = new HashMap<>();
+        Set<Long> unindexedIds = new HashSet<>();
+        for (AvailabilityRequest line : lines) {
+            if (line == null || line.getProductId() == null) {
+                continue;
+            }
+            Integer stock = knownStockLevel(line.getProductId());
+            if (stock != null) {
+                stockById.put(line.getProductId(), stock);
+            } else {
+                unindexedIds.add(line.getProductId());
+            }
+        }
+        if (!unindexedIds.isEmpty()) {
+            for (Product product : productRepository.findAllById(unindexedIds)) {
+                stockById.put(product.getId(), product.getStockQuantity());
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(lines.size());
+        for (AvailabilityRequest line : lines) {
+            Map<String, Object> result = new HashMap<>();
+            Long productId = line != null ? line.getProductId() : null;
+            Integer quantity = line != null ? line.getQuantity() : null;
+            Integer stock = productId != null ? stockById.get(productId) : null;
+            result.put("productId", productId);
+            result.put("quantity", quantity);
+            if (productId == null || quantity == null || quantity <= 0) {
+                result.put("status", "INVALID");
+                result.put("available", false);
+            } else if (stock == null) {
+                result.put("status", "NOT_FOUND");
+                result.put("available", false);
+            } else {
+                stock -= reservationLedger.heldQuantity(productId);
+                boolean available = stock >= quantity;
+                result.put("status", available ? "AVAILABLE" : "INSUFFICIENT_STOCK");
+                result.put("available", available);
+                result.put("availableStock", stock);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Returns every in-stock product as a read-only summary, in id order. The ids come from the availability
+     * index and the rows from batched projection queries; like {@link #indexProducts}, this bulk read leaves
+     * the product cache alone so a full listing does not push out the hot set.
+     */
+    public List<ProductSummary> getAvailableProducts() {
+        List<Long> ids = productAvailabilityIndex.inStockIds();
+        List<ProductSummary> products = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            // The ids are ascending, so chunks read in id order concatenate in id order
+            products.addAll(productRepository.findSummariesByIdIn(ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()))));
+        }
+        return products;
     }
 
     public List<String> getAllCategories() {
         return productRepository.findAllCategories();
     }
 
+    @RetryOnConflict
     public Product updateProduct(Long id, Product productDetails) {
-        Product existingProduct = getProductById(id);
+        Product existingProduct = loadProduct(id);
+        int stockDelta = 0;
 
         if (StringUtils.isNotBlank(productDetails.getName())) {
             existingProduct.setName(productDetails.getName());
@@ -88,6 +452,11 @@ public class ProductService {
         }
 
         if (productDetails.getStockQuantity() != null) {
+            SplitStockCounter counter = hotStockCounters.get(id);
+            if (counter != null && counter.total() != productDetails.getStockQuantity()) {
+                throw hotStockManaged(id);
+            }
+            stockDelta = productDetails.getStockQuantity() - existingProduct.getStockQuantity();
             existingProduct.setStockQuantity(productDetails.getStockQuantity());
         }
 
@@ -107,28 +476,431 @@ public class ProductService {
             existingProduct.setImageUrl(productDetails.getImageUrl());
         }
 
-        return productRepository.save(existingProduct);
+        Product savedProduct = productRepository.save(existingProduct);
+        if (stockDelta != 0) {
+            journal(id, stockDelta, InventoryJournal.Reason.ADJUSTMENT, null);
+        }
+        indexProduct(savedProduct);
+        return savedProduct;
     }
 
+    @RetryOnConflict
     public Product updateStock(Long id, Integer newStock) {
-        Product product = getProductById(id);
+        if (hotStockCounters.get(id) != null) {
+            throw hotStockManaged(id);
+        }
+        Product product = loadProduct(id);
+        int delta = newStock - product.getStockQuantity();
         product.setStockQuantity(newStock);
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        journal(id, delta, InventoryJournal.Reason.ADJUSTMENT, null);
+        productCache.evict(id);
+        afterCommit(() -> {
+            productCache.put(savedProduct);
+            productAvailabilityIndex.put(id, newStock);
+        });
+        afterRollback(() -> productCache.evict(id));
+        return savedProduct;
+    }
+
+    /**
+     * Atomically takes {@code quantity} units out of stock without loading the product.
+     * Returns false when the product does not exist or does not have enough stock.
+     * Hot products are served from their split counters and reach the database on the next reconciliation.
+     */
+    public boolean reserveStock(Long id, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        SplitStockCounter counter = hotStockCounters.get(id);
+        boolean reserved = false;
+        if (counter == null) {
+            // Held until the row update has run, so hot mode cannot be switched on in between unseen
+            Lock saleLock = hotStockCounters.saleLock(id);
+            saleLock.lock();
+            try {
+                counter = hotStockCounters.get(id);
+                if (counter == null) {
+                    reserved = productRepository.decrementStockIfAvailable(id, quantity, LocalDateTime.now()) == 1;
+                }
+            } finally {
+                saleLock.unlock();
+            }
+        }
+        if (counter != null) {
+            // A counter that is still being enabled refuses the sale
+            SplitStockCounter hotCounter = counter;
+            if (!hotCounter.tryTake(quantity)) {
+                return false;
+            }
+            afterRollback(() -> returnStock(id, hotCounter, quantity));
+            return true;
+        }
+        if (reserved) {
+            productCache.evict(id);
+            afterCommit(() -> productAvailabilityIndex.adjust(id, -quantity));
+        }
+        return reserved;
+    }
+
+    /**
+     * Puts back the stock taken by the given confirmed orders. One query totals their items per product
+     * and one relative update adds the totals back, however many lines the orders have; hot products
+     * get their units back in their counters instead.
+     */
+    public void restoreStockForOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> restoredById = new HashMap<>();
+        for (Object[] row : productRepository.sumOrderedQuantities(orderIds)) {
+            Long orderId = (Long) row[0];
+            Long id = (Long) row[1];
+            int quantity = ((Number) row[2]).intValue();
+            journal(id, quantity, InventoryJournal.Reason.CANCELLATION, orderId);
+            SplitStockCounter counter = hotStockCounters.get(id);
+            if (counter != null) {
+                afterCommit(() -> returnStock(id, counter, quantity));
+            } else {
+                restoredById.merge(id, quantity, Integer::sum);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(restoredById.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            productRepository.restoreOrderedStock(orderIds, ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size())), now);
+        }
+        for (Long id : ids) {
+            productCache.evict(id);
+        }
+        afterCommit(() -> restoredById.forEach(productAvailabilityIndex::adjust));
+    }
+
+    /**
+     * Splits a product's stock across {@code counters} sub-counters (one per core by default) so concurrent
+     * sales stop queuing on its row. Enable it before a sale starts; the row is brought up to date every
+     * {@code product.hot.reconcile-interval-ms} and when the mode is disabled.
+     *
+     * The counter is registered closed first, so from then on sales are refused instead of going to the row.
+     * Its starting stock is read afterwards with the row locked, which waits for sales that updated the row
+     * but have not committed yet, so none of them is counted twice.
+     */
+    public Map<String, Object> enableHotStock(Long id, Integer counters) {
+        int counterCount = counters != null ? counters : Runtime.getRuntime().availableProcessors();
+        if (counterCount <= 0 || counterCount > MAX_HOT_COUNTERS) {
+            throw new IllegalArgumentException("Counter count must be between 1 and " + MAX_HOT_COUNTERS);
+        }
+        SplitStockCounter counter = SplitStockCounter.arming(counterCount);
+        if (hotStockCounters.putIfAbsent(id, counter) != null) {
+            throw new IllegalStateException("Product is already in hot stock mode: " + id);
+        }
+        try {
+            Product product = productRepository.findByIdForUpdate(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
+            counter.open(product.getStockQuantity());
+        } catch (RuntimeException e) {
+            hotStockCounters.remove(id, counter);
+            counter.close();
+            throw e;
+        }
+        return counter.getStats();
+    }
+
+    public Map<String, Object> getHotStockStats(Long id) {
+        SplitStockCounter counter = hotStockCounters.get(id);
+        if (counter == null) {
+            throw new IllegalStateException("Product is not in hot stock mode: " + id);
+        }
+        return counter.getStats();
+    }
+
+    /**
+     * Closes the product's counters, writes the final stock to its row and returns the counters to normal mode.
+     * Sales racing the switch are refused rather than allowed onto a row that is not yet up to date.
+     */
+    public Map<String, Object> disableHotStock(Long id) {
+        SplitStockCounter counter = hotStockCounters.get(id);
+        if (counter == null) {
+            throw new IllegalStateException("Product is not in hot stock mode: " + id);
+        }
+        if (!counter.isOpen()) {
+            throw new IllegalStateException("Hot stock mode is still being enabled for product: " + id);
+        }
+        counter.close();
+        reconcileHotStock(id, counter);
+        hotStockCounters.remove(id);
+        return counter.getStats();
+    }
+
+    /**
+     * Applies each hot product's net stock change since the last run to its row as one relative update.
+     */
+    @Scheduled(fixedDelayString = "${product.hot.reconcile-interval-ms:1000}")
+    public void reconcileHotStock() {
+        for (Map.Entry<Long, SplitStockCounter> entry : hotStockCounters.getAll().entrySet()) {
+            reconcileHotStock(entry.getKey(), entry.getValue());
+        }
     }
 
     public void deleteProduct(Long id) {
         if (!productRepository.existsById(id)) {
             throw new EntityNotFoundException("Product not found with id: " + id);
         }
+        SplitStockCounter counter = hotStockCounters.remove(id);
+        if (counter != null) {
+            counter.close();
+        }
         productRepository.deleteById(id);
+        journal(id, 0, InventoryJournal.Reason.DELETION, null);
+        productCache.evict(id);
+        afterCommit(() -> {
+            productCache.evict(id);
+            productSearchIndex.remove(id);
+            productPriceIndex.remove(id);
+            productAvailabilityIndex.remove(id);
+        });
     }
 
     public boolean isProductAvailable(Long id, Integer requestedQuantity) {
-        Product product = getProductById(id);
-        return product.getStockQuantity() >= requestedQuantity;
+        return getStockLevel(id) - reservationLedger.heldQuantity(id) >= requestedQuantity;
+    }
+
+    /**
+     * Returns the product's stock on hand, before any holds for PENDING orders are taken off.
+     */
+    public int getStockLevel(Long id) {
+        Integer stock = knownStockLevel(id);
+        if (stock == null) {
+            stock = getProductById(id).getStockQuantity();
+        }
+        return stock;
+    }
+
+    /**
+     * Returns the product's stock from its open hot stock counters or the availability index, or null
+     * if neither has it and the row must be read.
+     */
+    private Integer knownStockLevel(Long id) {
+        SplitStockCounter counter = hotStockCounters.get(id);
+        if (counter != null && counter.isOpen()) {
+            return counter.total();
+        }
+        return productAvailabilityIndex.getStock(id);
+    }
+
+    /**
+     * Returns the stock left for new orders: the known stock level, or {@code rowStock} if there is none,
+     * less the units held for PENDING orders.
+     */
+    private int availableStock(Long id, int rowStock) {
+        Integer stock = knownStockLevel(id);
+        return (stock != null ? stock : rowStock) - reservationLedger.heldQuantity(id);
+    }
+
+    /**
+     * Records the units held for PENDING orders against each product, so the held stock is visible in the database.
+     */
+    @Transactional
+    public void saveReservedQuantities(Map<Long, Integer> reservedById) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Integer> entry : reservedById.entrySet()) {
+            productRepository.updateReservedQuantity(entry.getKey(), entry.getValue(), now);
+            productCache.evict(entry.getKey());
+        }
+    }
+
+    /**
+     * Compares each product's stock with the balance the inventory journal arrived at. Only products that
+     * disagree are returned, with a status of MISMATCH, UNTRACKED (no journal records) or MISSING (journaled
+     * but no longer in the catalog).
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getJournalDiscrepancies() {
+        Map<Long, Long> balances = inventoryJournal.getBalances();
+        List<Map<String, Object>> discrepancies = new ArrayList<>();
+        for (Object[] row : productRepository.findAllStockLevels()) {
+            Long id = (Long) row[0];
+            SplitStockCounter counter = hotStockCounters.get(id);
+            long stock = counter != null && counter.isOpen() ? counter.total() : (Integer) row[1];
+            Long balance = balances.remove(id);
+            if (balance == null) {
+                discrepancies.add(discrepancy(id, stock, null, "UNTRACKED"));
+            } else if (balance != stock) {
+                discrepancies.add(discrepancy(id, stock, balance, "MISMATCH"));
+            }
+        }
+        for (Map.Entry<Long, Long> missing : new TreeMap<>(balances).entrySet()) {
+            discrepancies.add(discrepancy(missing.getKey(), null, missing.getValue(), "MISSING"));
+        }
+        return discrepancies;
+    }
+
+    public Map<String, Object> getJournalStats() {
+        return inventoryJournal.getStats();
+    }
+
+    public Map<String, Object> getConflictStats() {
+        return conflictRetryAspect.getStats(ProductService.class);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return productCache.getStats();
+    }
+
+    /**
+     * Splits the range of the given prices into equal-width buckets and counts the prices falling in each.
+     */
+    private List<Map<String, Object>> buildPriceHistogram(long[] cents, int count, int buckets) {
+        List<Map<String, Object>> histogram = new ArrayList<>();
+        if (count == 0) {
+            return histogram;
+        }
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            lowest = Math.min(lowest, cents[i]);
+            highest = Math.max(highest, cents[i]);
+        }
+        long width = Math.max(1, (highest - lowest + buckets) / buckets);
+        int bucketCount = (int) Math.min(buckets, (highest - lowest) / width + 1);
+        long[] counts = new long[bucketCount];
+        for (int i = 0; i < count; i++) {
+            counts[(int) Math.min(bucketCount - 1, (cents[i] - lowest) / width)]++;
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("from", Money.toBigDecimal(lowest + i * width));
+            bucket.put("to", Money.toBigDecimal(i == bucketCount - 1 ? highest : lowest + (i + 1) * width - 1));
+            bucket.put("count", counts[i]);
+            histogram.add(bucket);
+        }
+        return histogram;
+    }
+
+    /**
+     * Brings the cache and the in-memory indexes up to date with a product that was just saved, once
+     * the save commits. Until then the cached copy is dropped, so readers go to the database and see
+     * the last committed row, and a rollback evicts once more rather than leaving anything behind.
+     */
+    private void indexProduct(Product product) {
+        Long id = product.getId();
+        productCache.evict(id);
+        afterCommit(() -> {
+            productCache.put(product);
+            productSearchIndex.index(id, product.getName(), product.getDescription());
+            productPriceIndex.put(id, product.getPrice(), product.getCategory());
+            productAvailabilityIndex.put(id, product.getStockQuantity());
+        });
+        afterRollback(() -> productCache.evict(id));
+    }
+
+    private void reconcileHotStock(Long id, SplitStockCounter counter) {
+        int delta = counter.reconcile(change -> productRepository.adjustStock(id, change, LocalDateTime.now()));
+        if (delta != 0) {
+            productCache.evict(id);
+            productAvailabilityIndex.adjust(id, delta);
+        }
+    }
+
+    /**
+     * Hands units back to a hot product's counters, or to its row if the counters were closed in the meantime.
+     */
+    private void returnStock(Long id, SplitStockCounter counter, int quantity) {
+        if (!counter.giveBack(quantity)) {
+            productRepository.adjustStock(id, quantity, LocalDateTime.now());
+            productCache.evict(id);
+            productAvailabilityIndex.adjust(id, quantity);
+        }
+    }
+
+    private static Map<String, Object> discrepancy(Long id, Long stock, Long balance, String status) {
+        Map<String, Object> discrepancy = new HashMap<>();
+        discrepancy.put("productId", id);
+        discrepancy.put("stock", stock);
+        discrepancy.put("journalBalance", balance);
+        discrepancy.put("status", status);
+        return discrepancy;
+    }
+
+    /**
+     * Records a stock change in the inventory journal once the surrounding transaction commits.
+     */
+    private void journal(Long id, int delta, InventoryJournal.Reason reason, Long orderId) {
+        afterCommit(() -> inventoryJournal.append(id, delta, reason, orderId));
+    }
+
+    private IllegalStateException hotStockManaged(Long id) {
+        return new IllegalStateException("Stock of product " + id + " is managed by hot stock counters; disable hot stock mode to change it");
+    }
+
+    /**
+     * Loads products in the given id order, taking what it can from the cache and the rest with batched id queries.
+     * Ids that no longer exist are skipped.
+     */
+    private List<Product> getProductsInOrder(List<Long> ids) {
+        Map<Long, Product> productsById = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            Product cached = productCache.get(id);
+            if (cached != null) {
+                productsById.put(id, cached);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        for (int from = 0; from < missingIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = missingIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, missingIds.size()));
+            long stamp = productCache.stamp();
+            for (Product product : productRepository.findAllById(chunk)) {
+                productsById.put(product.getId(), product);
+                productCache.putIfCurrent(product, stamp);
+            }
+        }
+
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Reads straight from the repository, bypassing the cache, so mutators never modify a shared cached instance.
+     */
+    private Product loadProduct(Long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
+    }
+
+    /**
+     * Adds products written outside {@link #createProduct}, such as a bulk import batch, to the in-memory indexes.
+     * The cache is left alone so a large import does not push out the hot set.
+     */
+    void indexProducts(List<Product> products) {
+        List<ProductPriceIndex.Entry> prices = new ArrayList<>(products.size());
+        for (Product product : products) {
+            productSearchIndex.index(product.getId(), product.getName(), product.getDescription());
+            prices.add(new ProductPriceIndex.Entry(product.getId(), product.getPrice(), product.getCategory()));
+            productAvailabilityIndex.put(product.getId(), product.getStockQuantity());
+            inventoryJournal.append(product.getId(), product.getStockQuantity(), InventoryJournal.Reason.INITIAL, null);
+        }
+        productPriceIndex.putAll(prices);
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item is required");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " items can be requested at once");
+        }
     }
 
-    private void validateProduct(Product product) {
+    void validateProduct(Product product) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
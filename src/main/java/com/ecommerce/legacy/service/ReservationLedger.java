@@ -0,0 +1,357 @@
+package com.ecommerce.legacy.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory holds on product stock for PENDING orders.
+ *
+ * A hold sets stock aside for an order without touching the database; it is turned into a real
+ * decrement when the order is confirmed, and released when the order is cancelled or the hold
+ * expires. Holds are striped by product id so orders for different products never contend, and
+ * every change to a product's stripe happens under that stripe's lock, so the check against
+ * available stock and the hold itself are atomic.
+ */
+@Component
+public class ReservationLedger {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Map<Long, Set<Long>> productsByOrder = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final AtomicLong placed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    @Autowired
+    public ReservationLedger(@Value("${reservation.ttl-seconds:900}") long ttlSeconds) {
+        this(ttlSeconds, System::currentTimeMillis);
+    }
+
+    ReservationLedger(long ttlSeconds, LongSupplier clock) {
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("Reservation TTL must be greater than zero");
+        }
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Holds {@code quantity} units of a product for an order if, counting every existing hold, no more
+     * than {@code stock} units would be held. Placing a hold renews the expiry of all the order's holds.
+     */
+    public boolean hold(Long orderId, Long productId, int quantity, int stock) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        long expiresAt = clock.getAsLong() + ttlMillis;
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            ProductHolds holds = stripe.holdsByProduct.get(productId);
+            int held = holds == null ? 0 : holds.total;
+            if (held + quantity > stock) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (holds == null) {
+                holds = new ProductHolds();
+                stripe.holdsByProduct.put(productId, holds);
+            }
+            holds.add(orderId, quantity, expiresAt);
+        }
+        Set<Long> orderProducts = track(orderId, productId);
+        renew(orderId, orderProducts, expiresAt);
+        dirtyProducts.add(productId);
+        placed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Re-creates a hold when rebuilding the ledger from PENDING orders. The hold is cut down so that no more
+     * than {@code stock} units end up held; returns the quantity actually held, which may be zero.
+     */
+    public int restore(Long orderId, Long productId, int quantity, int stock) {
+        int restored;
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            ProductHolds holds = stripe.holdsByProduct.get(productId);
+            int held = holds == null ? 0 : holds.total;
+            restored = Math.max(0, Math.min(quantity, stock - held));
+            if (restored == 0) {
+                return 0;
+            }
+            if (holds == null) {
+                holds = new ProductHolds();
+                stripe.holdsByProduct.put(productId, holds);
+            }
+            holds.add(orderId, restored, clock.getAsLong() + ttlMillis);
+        }
+        track(orderId, productId);
+        dirtyProducts.add(productId);
+        return restored;
+    }
+
+    /**
+     * Gives back part of one hold, e.g. when the transaction that placed it rolls back.
+     */
+    public void release(Long orderId, Long productId, int quantity) {
+        Stripe stripe = stripeFor(productId);
+        boolean emptied;
+        synchronized (stripe) {
+            ProductHolds holds = stripe.holdsByProduct.get(productId);
+            if (holds == null) {
+                return;
+            }
+            emptied = holds.remove(orderId, quantity);
+            if (holds.isEmpty()) {
+                stripe.holdsByProduct.remove(productId);
+            }
+        }
+        if (emptied) {
+            untrack(orderId, productId);
+        }
+        dirtyProducts.add(productId);
+    }
+
+    /**
+     * Releases every hold belonging to an order.
+     */
+    public void releaseOrder(Long orderId) {
+        Set<Long> orderProducts = productsByOrder.remove(orderId);
+        if (orderProducts == null) {
+            return;
+        }
+        for (Long productId : orderProducts) {
+            Stripe stripe = stripeFor(productId);
+            synchronized (stripe) {
+                ProductHolds holds = stripe.holdsByProduct.get(productId);
+                if (holds != null) {
+                    holds.remove(orderId, Integer.MAX_VALUE);
+                    if (holds.isEmpty()) {
+                        stripe.holdsByProduct.remove(productId);
+                    }
+                }
+            }
+            dirtyProducts.add(productId);
+        }
+    }
+
+    /**
+     * Drops every hold whose expiry has passed and returns how many were dropped.
+     */
+    public int expire() {
+        long now = clock.getAsLong();
+        List<long[]> dropped = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Map.Entry<Long, ProductHolds>> products = stripe.holdsByProduct.entrySet().iterator();
+                while (products.hasNext()) {
+                    Map.Entry<Long, ProductHolds> entry = products.next();
+                    for (Long orderId : entry.getValue().removeExpired(now)) {
+                        dropped.add(new long[]{orderId, entry.getKey()});
+                    }
+                    if (entry.getValue().isEmpty()) {
+                        products.remove();
+                    }
+                }
+            }
+        }
+        for (long[] hold : dropped) {
+            untrack(hold[0], hold[1]);
+            dirtyProducts.add(hold[1]);
+        }
+        expired.addAndGet(dropped.size());
+        return dropped.size();
+    }
+
+    /**
+     * Returns the units of a product currently held for one order.
+     */
+    public int heldQuantity(Long orderId, Long productId) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            ProductHolds holds = stripe.holdsByProduct.get(productId);
+            Hold hold = holds == null ? null : holds.byOrder.get(orderId);
+            return hold == null ? 0 : hold.quantity;
+        }
+    }
+
+    public int heldQuantity(Long productId) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            ProductHolds holds = stripe.holdsByProduct.get(productId);
+            return holds == null ? 0 : holds.total;
+        }
+    }
+
+    /**
+     * Returns the current held quantity of every product whose holds changed since the last call.
+     */
+    public Map<Long, Integer> drainChanges() {
+        Map<Long, Integer> changes = new HashMap<>();
+        Iterator<Long> dirty = dirtyProducts.iterator();
+        while (dirty.hasNext()) {
+            Long productId = dirty.next();
+            dirty.remove();
+            changes.put(productId, heldQuantity(productId));
+        }
+        return changes;
+    }
+
+    /**
+     * Marks products as changed again, so a checkpoint that failed is retried on the next run.
+     */
+    public void markChanged(Collection<Long> productIds) {
+        dirtyProducts.addAll(productIds);
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                dirtyProducts.addAll(stripe.holdsByProduct.keySet());
+                stripe.holdsByProduct.clear();
+            }
+        }
+        productsByOrder.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        int products = 0;
+        long units = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                products += stripe.holdsByProduct.size();
+                for (ProductHolds holds : stripe.holdsByProduct.values()) {
+                    units += holds.total;
+                }
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("orders", productsByOrder.size());
+        stats.put("products", products);
+        stats.put("heldUnits", units);
+        stats.put("placed", placed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("expired", expired.get());
+        stats.put("ttlSeconds", TimeUnit.MILLISECONDS.toSeconds(ttlMillis));
+        return stats;
+    }
+
+    private void renew(Long orderId, Set<Long> orderProducts, long expiresAt) {
+        for (Long productId : orderProducts) {
+            Stripe stripe = stripeFor(productId);
+            synchronized (stripe) {
+                ProductHolds holds = stripe.holdsByProduct.get(productId);
+                if (holds != null) {
+                    holds.renew(orderId, expiresAt);
+                }
+            }
+        }
+    }
+
+    private Set<Long> track(Long orderId, Long productId) {
+        return productsByOrder.compute(orderId, (id, orderProducts) -> {
+            Set<Long> tracked = orderProducts != null ? orderProducts : ConcurrentHashMap.newKeySet();
+            tracked.add(productId);
+            return tracked;
+        });
+    }
+
+    private void untrack(Long orderId, Long productId) {
+        productsByOrder.computeIfPresent(orderId, (id, orderProducts) -> {
+            orderProducts.remove(productId);
+            return orderProducts.isEmpty() ? null : orderProducts;
+        });
+    }
+
+    private Stripe stripeFor(Long productId) {
+        return stripes[(int) (productId & (STRIPES - 1))];
+    }
+
+    private static final class Stripe {
+        private final Map<Long, ProductHolds> holdsByProduct = new HashMap<>();
+    }
+
+    /**
+     * All holds on one product, by order, with their running total.
+     */
+    private static final class ProductHolds {
+        private final Map<Long, Hold> byOrder = new HashMap<>();
+        private int total;
+
+        private void add(Long orderId, int quantity, long expiresAt) {
+            Hold hold = byOrder.computeIfAbsent(orderId, id -> new Hold());
+            hold.quantity += quantity;
+            hold.expiresAt = expiresAt;
+            total += quantity;
+        }
+
+        /**
+         * Takes up to {@code quantity} off the order's hold; returns true if the hold is now gone.
+         */
+        private boolean remove(Long orderId, int quantity) {
+            Hold hold = byOrder.get(orderId);
+            if (hold == null) {
+                return true;
+            }
+            int removed = Math.min(quantity, hold.quantity);
+            hold.quantity -= removed;
+            total -= removed;
+            if (hold.quantity == 0) {
+                byOrder.remove(orderId);
+                return true;
+            }
+            return false;
+        }
+
+        private void renew(Long orderId, long expiresAt) {
+            Hold hold = byOrder.get(orderId);
+            if (hold != null) {
+                hold.expiresAt = expiresAt;
+            }
+        }
+
+        private List<Long> removeExpired(long now) {
+            List<Long> orderIds = new ArrayList<>();
+            Iterator<Map.Entry<Long, Hold>> holds = byOrder.entrySet().iterator();
+            while (holds.hasNext()) {
+                Map.Entry<Long, Hold> entry = holds.next();
+                if (entry.getValue().expiresAt <= now) {
+                    total -= entry.getValue().quantity;
+                    holds.remove();
+                    orderIds.add(entry.getKey());
+                }
+            }
+            return orderIds;
+        }
+
+        private boolean isEmpty() {
+            return byOrder.isEmpty();
+        }
+    }
+
+    private static final class Hold {
+        private int quantity;
+        private long expiresAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.legacy.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method that is re-run, in a fresh transaction, when it loses an optimistic version check.
+ * The method must be safe to repeat: anything it does outside the database has to be registered to run
+ * after commit or undone after rollback. See {@link ConflictRetryAspect}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
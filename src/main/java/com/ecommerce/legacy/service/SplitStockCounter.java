@@ -0,0 +1,229 @@
+package com.ecommerce.legacy.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Stock for one product split across several sub-counters, so concurrent buyers decrement
+ * different counters instead of queuing on one row or one atomic.
+ *
+ * A take picks a counter at random and decrements it with a compare-and-set. When the chosen
+ * counters are too low, the take falls back to a rebalance: under a lock, every counter is
+ * drained, the take is served from the pooled total and the rest is spread evenly again.
+ * Units are only ever moved with atomic operations, so none are lost or created while takes
+ * and rebalances overlap.
+ *
+ * The counters are the source of truth while a product is hot. The database is brought up to
+ * date by {@link #reconcile}, which reports the net change since the last reconciliation so it
+ * can be applied as a relative update.
+ *
+ * A counter created with {@link #arming} starts out holding nothing and refusing every take and
+ * give-back, so it can be registered before the stock it will start from is known; {@link #open}
+ * then loads that stock.
+ */
+public final class SplitStockCounter {
+
+    // Counters sit 16 ints (64 bytes) apart so each one has a cache line to itself
+    private static final int STRIDE = 16;
+
+    private final int counters;
+    private final AtomicIntegerArray cells;
+    private final Object rebalanceLock = new Object();
+    private final Object reconcileLock = new Object();
+    private final AtomicLong rebalances = new AtomicLong();
+
+    private volatile boolean open;
+    private volatile boolean closed;
+    private int closedTotal;
+    private int reconciledTotal;
+
+    public SplitStockCounter(int counters, int stock) {
+        if (counters <= 0) {
+            throw new IllegalArgumentException("Counter count must be greater than zero");
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        this.counters = counters;
+        this.cells = new AtomicIntegerArray(counters * STRIDE);
+        this.reconciledTotal = stock;
+        spread(stock);
+        this.open = true;
+    }
+
+    /**
+     * Returns a counter that is not open yet: it refuses takes and give-backs until {@link #open} is called.
+     */
+    public static SplitStockCounter arming(int counters) {
+        SplitStockCounter counter = new SplitStockCounter(counters, 0);
+        counter.open = false;
+        return counter;
+    }
+
+    /**
+     * Loads the stock of a counter created with {@link #arming} and starts serving takes from it.
+     *
+     * @throws IllegalStateException if the counter is already open or has been closed
+     */
+    public void open(int stock) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        synchronized (reconcileLock) {
+            synchronized (rebalanceLock) {
+                if (open || closed) {
+                    throw new IllegalStateException(closed ? "Counter has been closed" : "Counter is already open");
+                }
+                reconciledTotal = stock;
+                spread(stock);
+                open = true;
+            }
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units if the product has them. Returns false when stock is short
+     * or the counter has been closed.
+     */
+    public boolean tryTake(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (takeFrom(random.nextInt(counters), quantity) || takeFrom(random.nextInt(counters), quantity)) {
+            return true;
+        }
+        return rebalanceAndTake(quantity);
+    }
+
+    /**
+     * Returns units taken by a sale that did not go through. Returns false if the counter has been
+     * closed, in which case the caller must return them to the database instead.
+     */
+    public boolean giveBack(int quantity) {
+        synchronized (rebalanceLock) {
+            if (!open || closed) {
+                return false;
+            }
+            cells.addAndGet(slot(ThreadLocalRandom.current().nextInt(counters)), quantity);
+            return true;
+        }
+    }
+
+    public int total() {
+        synchronized (rebalanceLock) {
+            if (closed) {
+                return closedTotal;
+            }
+            int total = 0;
+            for (int i = 0; i < counters; i++) {
+                total += cells.get(slot(i));
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Stops the counter: later takes fail and later give-backs are refused. The stock left at
+     * that moment is kept so a final {@link #reconcile} can still write it.
+     */
+    public void close() {
+        synchronized (rebalanceLock) {
+            if (closed) {
+                return;
+            }
+            closedTotal = drain();
+            closed = true;
+        }
+    }
+
+    public boolean isOpen() {
+        return open && !closed;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Passes the net stock change since the last reconciliation to {@code writer} and, if it
+     * returns normally, records it as reconciled. Returns the change, or zero if there was none.
+     */
+    public int reconcile(IntConsumer writer) {
+        synchronized (reconcileLock) {
+            if (!open) {
+                return 0;
+            }
+            int delta = total() - reconciledTotal;
+            if (delta != 0) {
+                writer.accept(delta);
+                reconciledTotal += delta;
+            }
+            return delta;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("counters", counters);
+        stats.put("stock", total());
+        stats.put("rebalances", rebalances.get());
+        stats.put("open", open);
+        stats.put("closed", closed);
+        return stats;
+    }
+
+    private boolean takeFrom(int counter, int quantity) {
+        int slot = slot(counter);
+        while (true) {
+            int available = cells.get(slot);
+            if (available < quantity) {
+                return false;
+            }
+            if (cells.compareAndSet(slot, available, available - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean rebalanceAndTake(int quantity) {
+        synchronized (rebalanceLock) {
+            if (!open || closed) {
+                return false;
+            }
+            rebalances.incrementAndGet();
+            int total = drain();
+            boolean taken = total >= quantity;
+            spread(taken ? total - quantity : total);
+            return taken;
+        }
+    }
+
+    private int drain() {
+        int total = 0;
+        for (int i = 0; i < counters; i++) {
+            total += cells.getAndSet(slot(i), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Adds {@code units} across the counters as evenly as possible. Adds rather than sets, so
+     * units given back concurrently are kept.
+     */
+    private void spread(int units) {
+        int share = units / counters;
+        int remainder = units % counters;
+        for (int i = 0; i < counters; i++) {
+            cells.addAndGet(slot(i), i < remainder ? share + 1 : share);
+        }
+    }
+
+    private static int slot(int counter) {
+        return counter * STRIDE;
+    }
+}
@@ -1,12 +1,15 @@
 package com.ecommerce.legacy.service;
 
 import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.model.UserSummary;
 import com.ecommerce.legacy.repository.UserRepository;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +39,13 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + id));
     }
 
+    /**
+     * Returns the user's last update time without loading the user, or null if unknown.
+     */
+    public LocalDateTime getUserVersion(Long id) {
+        return userRepository.findUpdatedAtById(id).orElse(null);
+    }
+
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new EntityNotFoundException("User not found with username: " + username));
@@ -50,6 +60,11 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public List<UserSummary> getAllUserSummaries() {
+        return userRepository.findAllSummaries();
+    }
+
     public User updateUser(Long id, User userDetails) {
         User existingUser = getUserById(id);
         
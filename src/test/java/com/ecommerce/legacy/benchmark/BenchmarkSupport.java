@@ -0,0 +1,94 @@
+package com.ecommerce.legacy.benchmark;
+
+import org.junit.Assume;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Shared helpers for the benchmark tests. Benchmarks are skipped unless the build is run with
+ * {@code -Dbenchmarks=true}; catalog size can be changed with {@code -Dbenchmark.products=N}.
+ */
+final class BenchmarkSupport {
+
+    static final String[] CATEGORIES = {"Electronics", "Books", "Garden", "Toys", "Kitchen", "Sports", "Office", "Outdoor"};
+
+    private static final String[] ADJECTIVES = {"Classic", "Compact", "Deluxe", "Portable", "Wireless", "Heavy Duty",
+            "Smart", "Vintage", "Ergonomic", "Premium", "Rugged", "Slim", "Organic", "Modular", "Quiet"};
+    private static final String[] NOUNS = {"Lamp", "Kettle", "Backpack", "Speaker", "Notebook", "Drill", "Blender",
+            "Headphones", "Tent", "Chair", "Monitor", "Keyboard", "Bottle", "Jacket", "Router", "Camera"};
+    private static final int BATCH_SIZE = 5000;
+
+    private BenchmarkSupport() {
+    }
+
+    static void assumeBenchmarksEnabled() {
+        Assume.assumeTrue("Benchmarks run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+    }
+
+    static int productCount(int defaultCount) {
+        return Integer.getInteger("benchmark.products", defaultCount);
+    }
+
+    /**
+     * Inserts {@code count} generated products straight through JDBC, with ids 1..count.
+     */
+    static void insertProducts(JdbcTemplate jdbcTemplate, int count, Random random) {
+        String sql = "INSERT INTO products (id, name, description, price, stock_quantity, category, sku, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String noun = NOUNS[random.nextInt(NOUNS.length)];
+            String name = adjective + " " + noun + " " + (i % 1000);
+            String description = "A " + adjective.toLowerCase() + " " + noun.toLowerCase() + " for everyday use, model "
+                    + Integer.toString(i, 36);
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(99900), 2);
+            batch.add(new Object[]{(long) i, name, description, price, random.nextInt(50),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], "BENCH-" + i, now, now});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread while running {@code task} once.
+     */
+    static long allocatedBytes(Supplier<?> task) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        task.get();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /**
+     * Runs {@code task} a few times to warm up, then returns the median wall time in microseconds.
+     */
+    static long medianMicros(int runs, Supplier<?> task) {
+        for (int i = 0; i < 3; i++) {
+            task.get();
+        }
+        long[] samples = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.get();
+            samples[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(samples);
+        return samples[runs / 2];
+    }
+}
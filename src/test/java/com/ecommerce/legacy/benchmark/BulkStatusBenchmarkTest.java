@@ -0,0 +1,114 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.model.BulkStatusRequest;
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.UserRepository;
+import com.ecommerce.legacy.service.OrderService;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ships a day's worth of CONFIRMED orders through the bulk status update, once picked by id and once
+ * by status and date range, and logs how long each takes. Every tenth order is left PENDING so the
+ * id variant also has rejections to report.
+ * Run with {@code mvn test -Dtest=BulkStatusBenchmarkTest -Dbenchmarks=true}; the number of orders
+ * can be changed with {@code -Dbenchmark.orders=N}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "logging.level.com.ecommerce.legacy=INFO"})
+@DirtiesContext
+public class BulkStatusBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkStatusBenchmarkTest.class);
+
+    private static final int BATCH_SIZE = 5000;
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkBulkShip() {
+        int orders = Integer.getInteger("benchmark.orders", 100_000);
+        User user = userRepository.save(new User("bulk-bench", "bulk-bench@example.com", "secret123", "Bu", "Lk"));
+        // Day one is shipped by id, day two by filter
+        insertOrders(user.getId(), 1, orders, FIRST_DAY);
+        insertOrders(user.getId(), orders + 1, orders, FIRST_DAY.plusDays(1));
+
+        List<Long> ids = new ArrayList<>(orders);
+        for (long id = 1; id <= orders; id++) {
+            ids.add(id);
+        }
+        BulkStatusRequest byIds = new BulkStatusRequest();
+        byIds.setOrderIds(ids);
+        byIds.setTargetStatus(Order.OrderStatus.SHIPPED);
+        long started = System.nanoTime();
+        Map<String, Object> result = orderService.bulkUpdateStatus(byIds);
+        long byIdsMillis = (System.nanoTime() - started) / 1_000_000;
+        int rejected = ((List<?>) result.get("rejectedIds")).size();
+        assertEquals(orders, (Integer) result.get("transitioned") + rejected);
+        log.info("{} orders by id: {} shipped, {} rejected in {} ms", orders, result.get("transitioned"), rejected, byIdsMillis);
+
+        BulkStatusRequest byFilter = new BulkStatusRequest();
+        byFilter.setCurrentStatus(Order.OrderStatus.CONFIRMED);
+        byFilter.setStartDate(FIRST_DAY.plusDays(1));
+        byFilter.setEndDate(FIRST_DAY.plusDays(2).minusNanos(1));
+        byFilter.setTargetStatus(Order.OrderStatus.SHIPPED);
+        started = System.nanoTime();
+        result = orderService.bulkUpdateStatus(byFilter);
+        log.info("{} orders by status and date: {} shipped in {} ms", orders, result.get("transitioned"),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Inserts {@code count} orders with ids from {@code firstId}, spread over the day; every tenth is PENDING.
+     */
+    private void insertOrders(Long userId, long firstId, int count, LocalDateTime day) {
+        String sql = "INSERT INTO orders (id, user_id, status, total_amount, order_date, shipping_address, version) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        long spacingNanos = 86_400_000_000_000L / count;
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            String status = i % 10 == 0 ? "PENDING" : "CONFIRMED";
+            batch.add(new Object[]{firstId + i, userId, status, new BigDecimal("10.00"),
+                    Timestamp.valueOf(day.plusNanos(spacingNanos * i)), "1 Benchmark Way", 0L});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+}
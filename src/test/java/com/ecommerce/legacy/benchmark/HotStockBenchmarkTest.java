@@ -0,0 +1,117 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.service.ProductService;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sells one product from a growing number of threads, once through the conditional row update
+ * and once in hot stock mode, to show how each scales with cores. Every run checks that the
+ * units sold and the stock left in the row add up after the counters are reconciled.
+ * Run with {@code mvn test -Dtest=HotStockBenchmarkTest -Dbenchmarks=true}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "logging.level.com.ecommerce.legacy=INFO"})
+@DirtiesContext
+public class HotStockBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockBenchmarkTest.class);
+
+    private static final int ROW_SALES_PER_THREAD = 500;
+    private static final int HOT_SALES_PER_THREAD = 100_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkFlashSale() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = Math.max(8, cores * 2);
+        log.info("{} cores available", cores);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long rowRate = sell(threads, ROW_SALES_PER_THREAD, false);
+            long hotRate = sell(threads, HOT_SALES_PER_THREAD, true);
+            log.info("{} threads: row update {} sales/sec, hot counters {} sales/sec ({}x)",
+                    threads, rowRate, hotRate, hotRate / Math.max(1, rowRate));
+        }
+    }
+
+    private long sell(int threads, int salesPerThread, boolean hot) throws Exception {
+        // Stock runs out halfway, so the tail of each run also exercises the sold-out path
+        int stock = threads * salesPerThread / 2;
+        Product product = productRepository.save(new Product("Flash Sale Item", "Limited stock",
+                new BigDecimal("9.99"), stock, "Electronics", "HOT-" + System.nanoTime()));
+        Long productId = product.getId();
+        if (hot) {
+            productService.enableHotStock(productId, null);
+        }
+
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        long elapsedNanos;
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int mine = 0;
+                    for (int j = 0; j < salesPerThread; j++) {
+                        if (productService.reserveStock(productId, 1)) {
+                            mine++;
+                        }
+                    }
+                    sold.addAndGet(mine);
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (hot) {
+            productService.disableHotStock(productId);
+        }
+        int left = productRepository.findById(productId).orElseThrow(IllegalStateException::new).getStockQuantity();
+        assertEquals(stock, sold.get() + left);
+        assertEquals(0, left);
+        productService.deleteProduct(productId);
+        return (long) threads * salesPerThread * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+    }
+}
@@ -0,0 +1,139 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.UserRepository;
+import com.ecommerce.legacy.service.KeysetCursor;
+import com.ecommerce.legacy.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares a page of one user's order history served by the old path, which looks the user up and
+ * serializes full orders with their items and products, with the summary read that aggregates the item
+ * count in a single query. Each read includes JSON serialization inside the transaction, as open
+ * session in view would do it. Pages are read at the start of the history and half way through.
+ * Run with {@code mvn test -Dtest=OrderHistoryBenchmarkTest -Dbenchmarks=true}; the number of orders
+ * can be changed with {@code -Dbenchmark.orders=N}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "logging.level.com.ecommerce.legacy=INFO"})
+@DirtiesContext
+public class OrderHistoryBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderHistoryBenchmarkTest.class);
+
+    private static final int PRODUCTS = 1_000;
+    private static final int LINES_PER_ORDER = 3;
+    private static final int PAGE_SIZE = 20;
+    private static final LocalDateTime FIRST_ORDER_DATE = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkOrderHistory() {
+        int orders = Integer.getInteger("benchmark.orders", 5_000);
+        Random random = new Random(42);
+        BenchmarkSupport.insertProducts(jdbcTemplate, PRODUCTS, random);
+        User user = userRepository.save(new User("history-bench", "history@example.com", "secret123", "His", "Tory"));
+        insertOrders(user.getId(), orders, random);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        int middlePage = orders / PAGE_SIZE / 2;
+        // Orders are dated one minute apart, so the newest-first row at the middle page's start is known
+        long middleId = orders - (long) middlePage * PAGE_SIZE + 1;
+        String middleCursor = new KeysetCursor(KeysetCursor.SORT_BY_ORDER_DATE, middleId,
+                FIRST_ORDER_DATE.plusMinutes(middleId - 1).toString()).encode();
+
+        assertEquals(PAGE_SIZE, (int) readOnly.execute(status ->
+                orderService.getOrderHistory(user.getId(), middleCursor, PAGE_SIZE).getNumberOfElements()));
+
+        measure("first page, full orders (offset)", () -> readOnly.execute(status ->
+                json(orderService.getOrdersByUserPaginated(user.getId(), PageRequest.of(0, PAGE_SIZE)))));
+        measure("first page, history summaries (keyset)", () -> readOnly.execute(status ->
+                json(orderService.getOrderHistory(user.getId(), null, PAGE_SIZE))));
+        measure("middle page, full orders (offset)", () -> readOnly.execute(status ->
+                json(orderService.getOrdersByUserPaginated(user.getId(), PageRequest.of(middlePage, PAGE_SIZE)))));
+        measure("middle page, history summaries (keyset)", () -> readOnly.execute(status ->
+                json(orderService.getOrderHistory(user.getId(), middleCursor, PAGE_SIZE))));
+    }
+
+    /**
+     * Inserts {@code count} orders for the user with ids 1..count, each with a few item lines.
+     */
+    private void insertOrders(Long userId, int count, Random random) {
+        List<Object[]> orderRows = new ArrayList<>(count);
+        List<Object[]> itemRows = new ArrayList<>(count * LINES_PER_ORDER);
+        for (long id = 1; id <= count; id++) {
+            long totalCents = 0;
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                long priceCents = 100 + random.nextInt(9_900);
+                int quantity = 1 + random.nextInt(5);
+                totalCents += priceCents * quantity;
+                itemRows.add(new Object[]{(id - 1) * LINES_PER_ORDER + line + 1, id, 1 + random.nextInt(PRODUCTS),
+                        quantity, BigDecimal.valueOf(priceCents, 2)});
+            }
+            orderRows.add(new Object[]{id, userId, "DELIVERED", BigDecimal.valueOf(totalCents, 2),
+                    Timestamp.valueOf(FIRST_ORDER_DATE.plusMinutes(id - 1)), "1 Benchmark Way", 0L});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, user_id, status, total_amount, order_date, shipping_address, version) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", orderRows);
+        jdbcTemplate.batchUpdate("INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)",
+                itemRows);
+    }
+
+    private int json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void measure(String label, Supplier<?> task) {
+        long micros = BenchmarkSupport.medianMicros(7, task);
+        long bytes = BenchmarkSupport.allocatedBytes(task);
+        log.info("{}: median {} us, {} KB allocated", label, micros, bytes / 1024);
+    }
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.OrderItem;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds large orders one item at a time, once with the incremental long-cents total and once with
+ * the BigDecimal recomputation over every item that each addition used to run, and checks that both
+ * end on the same total. No database is involved, so this measures the model alone.
+ * Run with {@code mvn test -Dtest=OrderTotalBenchmarkTest -Dbenchmarks=true}.
+ */
+public class OrderTotalBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderTotalBenchmarkTest.class);
+
+    private static final int[] ORDER_SIZES = {100, 1_000, 5_000};
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkLargeOrders() {
+        Random random = new Random(42);
+        for (int size : ORDER_SIZES) {
+            List<OrderItem> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(new OrderItem(null, null, 1 + random.nextInt(20), BigDecimal.valueOf(100 + random.nextInt(99900), 2)));
+            }
+
+            assertEquals(recomputingTotal(items), incrementalTotal(items));
+
+            measure(size + " items, recompute on every add", () -> recomputingTotal(items));
+            measure(size + " items, incremental cents", () -> incrementalTotal(items));
+        }
+    }
+
+    private static BigDecimal incrementalTotal(List<OrderItem> items) {
+        Order order = new Order();
+        for (OrderItem item : items) {
+            order.addOrderItem(item);
+        }
+        return order.getTotalAmount();
+    }
+
+    // What Order.addOrderItem did before: append, then sum every item again
+    private static BigDecimal recomputingTotal(List<OrderItem> items) {
+        List<OrderItem> orderItems = new ArrayList<>(items.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            orderItems.add(item);
+            total = orderItems.stream()
+                    .map(line -> line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+        return total;
+    }
+
+    private void measure(String label, Supplier<?> task) {
+        long micros = BenchmarkSupport.medianMicros(7, task);
+        long bytes = BenchmarkSupport.allocatedBytes(task);
+        log.info("{}: median {} us, {} KB allocated", label, micros, bytes / 1024);
+    }
+}
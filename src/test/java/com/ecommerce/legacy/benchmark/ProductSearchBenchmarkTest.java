@@ -0,0 +1,68 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.service.ProductSearchIndex;
+import com.ecommerce.legacy.service.ProductService;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the {@code LIKE %name%} repository query with the in-memory search index.
+ * Run with {@code mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmarks=true -DargLine=-Xmx3g}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "logging.level.com.ecommerce.legacy=INFO"})
+@DirtiesContext
+public class ProductSearchBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchBenchmarkTest.class);
+    private static final String[] QUERIES = {"Lamp", "wireless speaker", "Ergonomic Chair 42", "ket", "backpack 99"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkSearch() {
+        int count = BenchmarkSupport.productCount(1_000_000);
+        BenchmarkSupport.insertProducts(jdbcTemplate, count, new Random(42));
+
+        long buildStart = System.nanoTime();
+        productService.buildIndexes();
+        log.info("Indexed {} products in {} ms", productSearchIndex.size(), (System.nanoTime() - buildStart) / 1_000_000);
+        assertEquals(count, productSearchIndex.size());
+
+        for (String query : QUERIES) {
+            long likeMicros = BenchmarkSupport.medianMicros(5, () -> productRepository.findByNameContaining(query));
+            long indexMicros = BenchmarkSupport.medianMicros(50, () -> productSearchIndex.search(query, 50));
+            long endpointMicros = BenchmarkSupport.medianMicros(20, () -> productService.searchProductsByName(query, 50));
+            log.info("'{}': LIKE {} us, index {} us, index + hydration {} us", query, likeMicros, indexMicros, endpointMicros);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.repository.ProductRepository;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares listing products as managed entities with listing them through the constructor projection,
+ * for a full-table read and for a single page. Entities are read both in a read-write transaction (the
+ * old behaviour) and in a read-only one, to separate the projection's gain from skipping snapshots.
+ * Run with {@code mvn test -Dtest=ProjectionBenchmarkTest -Dbenchmarks=true}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "logging.level.com.ecommerce.legacy=INFO"})
+@DirtiesContext
+public class ProjectionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectionBenchmarkTest.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkListReads() {
+        int count = BenchmarkSupport.productCount(100_000);
+        BenchmarkSupport.insertProducts(jdbcTemplate, count, new Random(42));
+
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        PageRequest page = PageRequest.of(count / 200, 100, Sort.by("name"));
+
+        assertEquals(count, (int) readOnly.execute(status -> productRepository.findAllSummaries().size()));
+
+        measure("full table, entities, read-write tx", () -> readWrite.execute(status -> productRepository.findAll().size()));
+        measure("full table, entities, read-only tx", () -> readOnly.execute(status -> productRepository.findAll().size()));
+        measure("full table, projection, read-only tx", () -> readOnly.execute(status -> productRepository.findAllSummaries().size()));
+        measure("page of 100, entities, read-write tx", () -> readWrite.execute(status -> productRepository.findAll(page).getNumberOfElements()));
+        measure("page of 100, projection, read-only tx", () -> readOnly.execute(status -> productRepository.findAllSummaries(page).getNumberOfElements()));
+    }
+
+    private void measure(String label, Supplier<?> task) {
+        long micros = BenchmarkSupport.medianMicros(7, task);
+        long bytes = BenchmarkSupport.allocatedBytes(task);
+        log.info("{}: median {} us, {} KB allocated", label, micros, bytes / 1024);
+    }
+}
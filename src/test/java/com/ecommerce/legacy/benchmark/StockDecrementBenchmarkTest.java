@@ -0,0 +1,123 @@
+package com.ecommerce.legacy.benchmark;
+
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.service.ProductService;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sells one product from many threads through the old read-check-write path and through the
+ * conditional stock decrement, and logs the rate of each with the updates the old path lost.
+ * Run with {@code mvn test -Dtest=StockDecrementBenchmarkTest -Dbenchmarks=true}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "logging.level.com.ecommerce.legacy=INFO"})
+@DirtiesContext
+public class StockDecrementBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockDecrementBenchmarkTest.class);
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 500;
+    private static final int INITIAL_STOCK = THREADS * ATTEMPTS_PER_THREAD;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        BenchmarkSupport.assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void benchmarkReadCheckWriteAgainstConditionalDecrement() throws Exception {
+        Long productId = productRepository.save(new Product("Flash Sale Item", "Limited stock",
+                new BigDecimal("9.99"), INITIAL_STOCK, "Electronics", "DECR-" + System.nanoTime())).getId();
+        try {
+            AtomicInteger legacySold = new AtomicInteger();
+            long legacyNanos = hammer(() -> {
+                try {
+                    if (productService.isProductAvailable(productId, 1)) {
+                        Product product = productService.getProductById(productId);
+                        productService.updateStock(productId, product.getStockQuantity() - 1);
+                        legacySold.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    // a failed write counts as a rejected attempt
+                }
+            });
+            int legacyLost = legacySold.get() - (INITIAL_STOCK - stockOf(productId));
+
+            productService.updateStock(productId, INITIAL_STOCK);
+            AtomicInteger sold = new AtomicInteger();
+            long atomicNanos = hammer(() -> {
+                if (productService.reserveStock(productId, 1)) {
+                    sold.incrementAndGet();
+                }
+            });
+
+            log.info("Read-check-write: {} ops/sec, {} lost updates; conditional decrement: {} ops/sec",
+                    opsPerSecond(legacyNanos), legacyLost, opsPerSecond(atomicNanos));
+            assertEquals(INITIAL_STOCK - sold.get(), stockOf(productId));
+        } finally {
+            productService.deleteProduct(productId);
+        }
+    }
+
+    private int stockOf(Long productId) {
+        return productRepository.findById(productId).orElseThrow(IllegalStateException::new).getStockQuantity();
+    }
+
+    private long hammer(Runnable attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < ATTEMPTS_PER_THREAD; j++) {
+                        attempt.run();
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            return System.nanoTime() - startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long opsPerSecond(long elapsedNanos) {
+        return (long) THREADS * ATTEMPTS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+    }
+}
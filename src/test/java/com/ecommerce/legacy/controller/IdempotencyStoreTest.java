@@ -0,0 +1,196 @@
+package com.ecommerce.legacy.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IdempotencyStoreTest {
+
+    private IdempotencyStore store;
+    private AtomicInteger runs;
+
+    @Before
+    public void setUp() {
+        store = new IdempotencyStore(new ObjectMapper(), 2, 60, 5000);
+        runs = new AtomicInteger();
+    }
+
+    @Test
+    public void testRequestWithoutKeyAlwaysRuns() {
+        store.execute(null, "POST /orders", () -> created(runs.incrementAndGet()));
+        store.execute(null, "POST /orders", () -> created(runs.incrementAndGet()));
+
+        assertEquals(2, runs.get());
+        assertEquals(0, store.getStats().get("size"));
+    }
+
+    @Test
+    public void testRepeatedKeyReplaysOriginalResponse() {
+        ResponseEntity<?> first = store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+        ResponseEntity<?> second = store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals(body(first), body(second));
+        assertEquals("{\"id\":1}", body(second));
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1L, store.getStats().get("replays"));
+    }
+
+    @Test
+    public void testKeyReusedForDifferentRequestIsRefused() {
+        store.execute("key-1", "POST /orders?userId=1", () -> created(runs.incrementAndGet()));
+        ResponseEntity<?> reused = store.execute("key-1", "POST /orders?userId=2", () -> created(runs.incrementAndGet()));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testBlankKeyIsRejected() {
+        ResponseEntity<?> response = store.execute(" ", "POST /orders", () -> created(runs.incrementAndGet()));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testConflictIsNotRemembered() {
+        ResponseEntity<?> conflict = store.execute("key-1", "POST /orders/1/items",
+                () -> ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", "retry")));
+        ResponseEntity<?> retry = store.execute("key-1", "POST /orders/1/items", () -> created(runs.incrementAndGet()));
+
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testExceptionForgetsKey() {
+        try {
+            store.execute("key-1", "POST /orders", () -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("Expected the exception to propagate");
+        } catch (IllegalStateException expected) {
+            assertEquals("boom", expected.getMessage());
+        }
+        store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedKeyIsEvicted() {
+        store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+        store.execute("key-2", "POST /orders", () -> created(runs.incrementAndGet()));
+        store.execute("key-3", "POST /orders", () -> created(runs.incrementAndGet()));
+        store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+
+        assertEquals(4, runs.get());
+        assertEquals(2, store.getStats().get("size"));
+        assertEquals(2L, store.getStats().get("evictions"));
+    }
+
+    @Test
+    public void testConcurrentDuplicatesShareOneExecution() throws Exception {
+        int callers = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<ResponseEntity<?>> owner = executor.submit(() -> store.execute("key-1", "POST /orders", () -> {
+                started.countDown();
+                await(release);
+                return created(runs.incrementAndGet());
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<?>[] duplicates = new Future<?>[callers - 1];
+            for (int i = 0; i < duplicates.length; i++) {
+                duplicates[i] = executor.submit(() -> store.execute("key-1", "POST /orders",
+                        () -> created(runs.incrementAndGet())));
+            }
+            waitForCoalesced(duplicates.length);
+            release.countDown();
+
+            String expected = body(owner.get(5, TimeUnit.SECONDS));
+            for (Future<?> duplicate : duplicates) {
+                ResponseEntity<?> response = (ResponseEntity<?>) duplicate.get(5, TimeUnit.SECONDS);
+                assertEquals(HttpStatus.CREATED, response.getStatusCode());
+                assertEquals(expected, body(response));
+            }
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDuplicateGivesUpWhileRequestIsStillRunning() throws Exception {
+        store = new IdempotencyStore(new ObjectMapper(), 2, 60, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<?>> owner = executor.submit(() -> store.execute("key-1", "POST /orders", () -> {
+                started.countDown();
+                await(release);
+                return created(runs.incrementAndGet());
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            ResponseEntity<?> duplicate = store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+
+            assertEquals(HttpStatus.CONFLICT, duplicate.getStatusCode());
+            assertEquals(1L, store.getStats().get("timeouts"));
+            release.countDown();
+            assertEquals(HttpStatus.CREATED, owner.get(5, TimeUnit.SECONDS).getStatusCode());
+
+            ResponseEntity<?> retry = store.execute("key-1", "POST /orders", () -> created(runs.incrementAndGet()));
+            assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitForCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Long) store.getStats().get("coalesced") < expected) {
+            assertTrue("Duplicates did not arrive", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ResponseEntity<Map<String, Integer>> created(int id) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(Collections.singletonMap("id", id));
+    }
+
+    private static String body(ResponseEntity<?> response) {
+        return new String((byte[]) response.getBody(), StandardCharsets.UTF_8);
+    }
+}
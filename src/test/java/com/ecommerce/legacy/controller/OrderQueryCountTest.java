@@ -0,0 +1,133 @@
+package com.ecommerce.legacy.controller;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import com.ecommerce.legacy.service.OrderService;
+import com.ecommerce.legacy.service.ReservationLedger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements each order listing issues, including serialization of the
+ * user, items and products, so reintroducing lazy loading per order or per item fails here.
+ */
+@RunWith(SpringRunner.class)
+// The reservation checkpoint writes to the database on a schedule, so it is pushed out of the way of the counts
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.generate_statistics=true",
+        "reservation.checkpoint-interval-ms=3600000"})
+@AutoConfigureMockMvc
+public class OrderQueryCountTest {
+
+    private static final int ORDERS = 5;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SqlStatementCounter statements;
+    private User user;
+    private final List<Product> products = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        statements = new SqlStatementCounter(entityManagerFactory);
+        user = userRepository.save(new User("count-" + System.nanoTime(), "count@example.com", "secret123", "Co", "Unt"));
+        for (int i = 0; i < ORDERS * LINES_PER_ORDER; i++) {
+            products.add(new Product("Count " + i, null, new BigDecimal("1.00"), 100, "Count", "CNT-" + System.nanoTime() + "-" + i));
+        }
+        productRepository.saveAll(products);
+        for (int o = 0; o < ORDERS; o++) {
+            Order order = orderService.createOrder(user.getId(), "1 Main St");
+            for (int l = 0; l < LINES_PER_ORDER; l++) {
+                orderService.addItemToOrder(order.getId(), products.get(o * LINES_PER_ORDER + l).getId(), 1);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Order order : orderRepository.findByUser(user)) {
+            reservationLedger.releaseOrder(order.getId());
+            orderRepository.delete(order);
+        }
+        productRepository.deleteAll(products);
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void testAllOrdersInOneStatement() throws Exception {
+        statements.reset();
+        mockMvc.perform(get("/orders")).andExpect(status().isOk());
+        statements.assertCount("GET /orders", 1);
+    }
+
+    @Test
+    public void testOrdersByUserInTwoStatements() throws Exception {
+        statements.reset();
+        mockMvc.perform(get("/orders/user/{userId}", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ORDERS))
+                .andExpect(jsonPath("$[0].orderItems.length()").value(LINES_PER_ORDER))
+                .andExpect(jsonPath("$[0].orderItems[0].product.name").exists())
+                .andExpect(jsonPath("$[0].user.username").value(user.getUsername()));
+        // One for the user lookup that answers 404 for unknown users, one for the orders
+        statements.assertCount("GET /orders/user/{userId}", 2);
+    }
+
+    @Test
+    public void testOrderHistoryInOneStatement() throws Exception {
+        statements.reset();
+        mockMvc.perform(get("/orders/user/{userId}/history", user.getId()).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfElements").value(2))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.content[0].itemCount").value(LINES_PER_ORDER))
+                .andExpect(jsonPath("$.content[0].totalAmount").value(3.0));
+        statements.assertCount("GET /orders/user/{userId}/history", 1);
+    }
+
+    @Test
+    public void testOrdersByStatusInOneStatement() throws Exception {
+        statements.reset();
+        mockMvc.perform(get("/orders/status/{status}", Order.OrderStatus.PENDING)).andExpect(status().isOk());
+        statements.assertCount("GET /orders/status/{status}", 1);
+    }
+}
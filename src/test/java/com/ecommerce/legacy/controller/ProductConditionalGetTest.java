@@ -0,0 +1,105 @@
+package com.ecommerce.legacy.controller;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import com.ecommerce.legacy.service.OrderService;
+import com.ecommerce.legacy.service.ProductService;
+import com.ecommerce.legacy.service.ReservationLedger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that every change visible in a product's JSON also changes its validators, so a client
+ * holding an old body is never told it is still current.
+ */
+@RunWith(SpringRunner.class)
+// The checkpoint is run by hand here, so the scheduled one is pushed out of the way
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "reservation.checkpoint-interval-ms=3600000"})
+@AutoConfigureMockMvc
+public class ProductConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product product;
+
+    @Before
+    public void setUp() {
+        user = userRepository.save(new User("etag-" + System.nanoTime(), "etag-" + System.nanoTime() + "@example.com",
+                "secret123", "E", "Tag"));
+        product = productService.createProduct(new Product("ETag Widget", null, new BigDecimal("2.00"), 10,
+                "ETag", "ETAG-" + System.nanoTime()));
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            for (Order order : orderRepository.findByUser(user)) {
+                reservationLedger.releaseOrder(order.getId());
+                orderRepository.delete(order);
+            }
+            productService.deleteProduct(product.getId());
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    public void testUnchangedProductAnswersNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testReservationCheckpointChangesETag() throws Exception {
+        String etag = mockMvc.perform(get("/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservedQuantity").value(0))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Order order = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.addItemToOrder(order.getId(), product.getId(), 3);
+        orderService.checkpointReservations();
+
+        mockMvc.perform(get("/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservedQuantity").value(3));
+    }
+}
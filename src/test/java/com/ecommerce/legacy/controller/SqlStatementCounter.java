@@ -0,0 +1,36 @@
+package com.ecommerce.legacy.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts the SQL statements Hibernate prepares, so a test can pin the exact number an endpoint issues
+ * and an N+1 regression fails the build. Needs {@code spring.jpa.properties.hibernate.generate_statistics=true}.
+ */
+final class SqlStatementCounter {
+
+    private final Statistics statistics;
+
+    SqlStatementCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("Hibernate statistics are disabled; set hibernate.generate_statistics=true");
+        }
+    }
+
+    void reset() {
+        statistics.clear();
+    }
+
+    long count() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    void assertCount(String label, long expected) {
+        assertEquals("SQL statements issued by " + label, expected, count());
+    }
+}
@@ -1,6 +1,7 @@
 package com.ecommerce.legacy.controller;
 
 import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.model.UserSummary;
 import com.ecommerce.legacy.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -93,6 +94,37 @@ public class UserControllerTest {
         verify(userService, times(1)).getUserById(1L);
     }
 
+    @Test
+    public void testGetUserById_NotModifiedWithoutLoadingUser() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123456000);
+        testUser.setUpdatedAt(updatedAt);
+        when(userService.getUserById(anyLong())).thenReturn(testUser);
+
+        String etag = mockMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        when(userService.getUserVersion(1L)).thenReturn(updatedAt);
+        mockMvc.perform(get("/users/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(userService, times(1)).getUserById(1L);
+    }
+
+    @Test
+    public void testGetUserById_ChangedSinceETag() throws Exception {
+        testUser.setUpdatedAt(LocalDateTime.of(2024, 1, 15, 10, 31, 0));
+        when(userService.getUserVersion(1L)).thenReturn(testUser.getUpdatedAt());
+        when(userService.getUserById(anyLong())).thenReturn(testUser);
+
+        mockMvc.perform(get("/users/1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("testuser"));
+    }
+
     @Test
     public void testGetUserById_NotFound() throws Exception {
         when(userService.getUserById(anyLong()))
@@ -134,14 +166,18 @@ public class UserControllerTest {
 
     @Test
     public void testGetAllUsers_Success() throws Exception {
-        List<User> userList = Arrays.asList(testUser, new User());
-        when(userService.getAllUsers()).thenReturn(userList);
+        List<UserSummary> userList = Arrays.asList(
+                new UserSummary(1L, "testuser", "test@example.com", "Test", "User", null, null),
+                new UserSummary(2L, "other", "other@example.com", "Other", "User", null, null));
+        when(userService.getAllUserSummaries()).thenReturn(userList);
 
         mockMvc.perform(get("/users"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].username").value("testuser"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
 
-        verify(userService, times(1)).getAllUsers();
+        verify(userService, times(1)).getAllUserSummaries();
     }
 
     @Test
@@ -0,0 +1,76 @@
+package com.ecommerce.legacy.model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the incrementally maintained long-cents total against the BigDecimal sum over every item that
+ * orders used to recompute on each change, across many random sequences of additions and removals.
+ */
+public class OrderTotalTest {
+
+    private static final int SEQUENCES = 500;
+    private static final int STEPS = 200;
+
+    @Test
+    public void testIncrementalTotalMatchesRecomputedSum() {
+        Random random = new Random(19);
+        for (int sequence = 0; sequence < SEQUENCES; sequence++) {
+            Order order = new Order();
+            List<OrderItem> added = new ArrayList<>();
+            for (int step = 0; step < STEPS; step++) {
+                if (!added.isEmpty() && random.nextInt(4) == 0) {
+                    order.removeOrderItem(added.remove(random.nextInt(added.size())));
+                } else {
+                    OrderItem item = new OrderItem(null, null, 1 + random.nextInt(1000), randomPrice(random));
+                    added.add(item);
+                    order.addOrderItem(item);
+                }
+                assertEquals("sequence " + sequence + ", step " + step,
+                        recomputedTotal(order.getOrderItems()), order.getTotalAmount());
+            }
+        }
+    }
+
+    @Test
+    public void testTotalSurvivesRoundTripThroughColumn() {
+        Order order = new Order();
+        order.addOrderItem(new OrderItem(null, null, 3, new BigDecimal("19.99")));
+        order.addOrderItem(new OrderItem(null, null, 1, new BigDecimal("0.01")));
+
+        Order loaded = new Order();
+        loaded.setTotalAmount(order.getTotalAmount());
+
+        assertEquals(new BigDecimal("59.98"), loaded.getTotalAmount());
+        assertEquals(5998L, loaded.getTotalCents());
+    }
+
+    @Test
+    public void testEmptyOrderTotalsZero() {
+        assertEquals(new BigDecimal("0.00"), new Order().getTotalAmount());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testOverflowFailsInsteadOfWrapping() {
+        Order order = new Order();
+        order.addOrderItem(new OrderItem(null, null, Integer.MAX_VALUE, new BigDecimal("90000000000000000")));
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        return BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+    }
+
+    // The computation Order performed on every change before totals were kept in cents
+    private static BigDecimal recomputedTotal(List<OrderItem> items) {
+        return items.stream()
+                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .setScale(Money.SCALE);
+    }
+}
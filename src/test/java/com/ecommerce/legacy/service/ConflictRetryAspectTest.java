@@ -0,0 +1,90 @@
+package com.ecommerce.legacy.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConflictRetryAspectTest {
+
+    private ConflictRetryAspect aspect;
+    // Fields are set and read on the target; the CGLIB proxy has its own, unused copies
+    private ConflictingWriter target;
+    private ConflictingWriter writer;
+
+    @Before
+    public void setUp() {
+        aspect = new ConflictRetryAspect(3, 0, 0);
+        target = new ConflictingWriter();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        writer = factory.getProxy();
+    }
+
+    @Test
+    public void testRetriesUntilWriteSucceeds() {
+        target.conflictsLeft = 2;
+
+        assertEquals("written", writer.write());
+
+        Map<String, Object> counters = methodCounters();
+        assertEquals(3, target.attempts);
+        assertEquals(1L, counters.get("calls"));
+        assertEquals(2L, counters.get("conflicts"));
+        assertEquals(2L, counters.get("retries"));
+        assertEquals(0L, counters.get("exhausted"));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        target.conflictsLeft = 5;
+
+        try {
+            writer.write();
+            fail("Expected ObjectOptimisticLockingFailureException");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            assertEquals(3, target.attempts);
+            assertEquals(1L, methodCounters().get("exhausted"));
+        }
+    }
+
+    @Test
+    public void testDoesNotRetryInsideExistingTransaction() {
+        target.conflictsLeft = 1;
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            writer.write();
+            fail("Expected ObjectOptimisticLockingFailureException");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            assertEquals(1, target.attempts);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> methodCounters() {
+        Map<String, Object> methods = (Map<String, Object>) aspect.getStats(ConflictingWriter.class).get("methods");
+        return (Map<String, Object>) methods.get("ConflictingWriter.write()");
+    }
+
+    public static class ConflictingWriter {
+        private int conflictsLeft;
+        private int attempts;
+
+        @RetryOnConflict
+        public String write() {
+            attempts++;
+            if (conflictsLeft-- > 0) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            }
+            return "written";
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jpa.show-sql=false")
+public class ExportServiceTest {
+
+    private static final int PRODUCT_COUNT = 250;
+    // Well before any order the other tests place, so the range holds only this test's orders
+    private static final LocalDateTime RANGE_START = LocalDateTime.of(2001, 3, 1, 0, 0);
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Product> products = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        long run = System.nanoTime();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            products.add(new Product("Export " + i, null, new BigDecimal("1.50"), i, "Export", "EXP-" + run + "-" + i));
+        }
+        productRepository.saveAll(products);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            for (User user : users) {
+                orderRepository.deleteAll(orderRepository.findByUser(user));
+            }
+        } finally {
+            userRepository.deleteAllById(users.stream().map(User::getId).collect(Collectors.toList()));
+            productRepository.deleteAllById(products.stream().map(Product::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testExportProductsWritesOneLinePerProductAcrossChunks() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportProducts(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(written, lines.length);
+        Set<Long> ownIds = products.stream().map(Product::getId).collect(Collectors.toSet());
+        int own = 0;
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode product = objectMapper.readTree(line);
+            assertTrue(product.get("id").asLong() > previousId);
+            previousId = product.get("id").asLong();
+            if (ownIds.contains(previousId)) {
+                own++;
+            }
+        }
+        assertEquals(PRODUCT_COUNT, own);
+    }
+
+    @Test
+    public void testExportOrdersByDateRangeStreamsAcrossWindowsOldestFirst() throws Exception {
+        User user = saveUser("range");
+        // Every 6 hours for 3 days (more than one 24 hour window), plus one order on each side of the range
+        for (int i = 0; i <= 12; i++) {
+            saveOrder(user, RANGE_START.plusHours(6L * i), Order.OrderStatus.PENDING);
+        }
+        saveOrder(user, RANGE_START.minusSeconds(1), Order.OrderStatus.PENDING);
+        saveOrder(user, RANGE_START.plusDays(3).plusSeconds(1), Order.OrderStatus.PENDING);
+
+        List<JsonNode> orders = exportRange(RANGE_START, RANGE_START.plusDays(3), null, null);
+
+        assertEquals(13, orders.size());
+        LocalDateTime previous = null;
+        for (JsonNode order : orders) {
+            LocalDateTime orderDate = LocalDateTime.parse(order.get("orderDate").asText());
+            assertFalse(orderDate.isBefore(RANGE_START));
+            assertFalse(orderDate.isAfter(RANGE_START.plusDays(3)));
+            assertTrue(previous == null || !orderDate.isBefore(previous));
+            assertEquals(user.getUsername(), order.get("user").get("username").asText());
+            previous = orderDate;
+        }
+    }
+
+    @Test
+    public void testExportOrdersByDateRangeAppliesStatusAndUserFilters() throws Exception {
+        User first = saveUser("range-a");
+        User second = saveUser("range-b");
+        saveOrder(first, RANGE_START.plusHours(1), Order.OrderStatus.PENDING);
+        saveOrder(first, RANGE_START.plusHours(2), Order.OrderStatus.SHIPPED);
+        saveOrder(second, RANGE_START.plusHours(3), Order.OrderStatus.SHIPPED);
+
+        LocalDateTime end = RANGE_START.plusDays(1);
+        assertEquals(2, exportRange(RANGE_START, end, Order.OrderStatus.SHIPPED, null).size());
+        assertEquals(2, exportRange(RANGE_START, end, null, first.getId()).size());
+        assertEquals(1, exportRange(RANGE_START, end, Order.OrderStatus.SHIPPED, first.getId()).size());
+        assertEquals(0, exportRange(RANGE_START, end, Order.OrderStatus.DELIVERED, null).size());
+    }
+
+    @Test
+    public void testOrderDateBoundsApplyStatusAndUserFilters() {
+        User first = saveUser("bounds-a");
+        User second = saveUser("bounds-b");
+        saveOrder(first, RANGE_START.plusHours(1), Order.OrderStatus.PENDING);
+        saveOrder(second, RANGE_START.plusHours(2), Order.OrderStatus.SHIPPED);
+        saveOrder(first, RANGE_START.plusHours(3), Order.OrderStatus.SHIPPED);
+        saveOrder(second, RANGE_START.plusHours(4), Order.OrderStatus.PENDING);
+
+        LocalDateTime end = RANGE_START.plusDays(1);
+        Object[] shipped = orderRepository.findOrderDateBoundsByStatus(RANGE_START, end, Order.OrderStatus.SHIPPED).get(0);
+        Object[] firstUser = orderRepository.findOrderDateBoundsByUser(RANGE_START, end, first.getId()).get(0);
+        Object[] both = orderRepository.findOrderDateBoundsByStatusAndUser(RANGE_START, end,
+                Order.OrderStatus.PENDING, second.getId()).get(0);
+
+        assertEquals(RANGE_START.plusHours(2), shipped[0]);
+        assertEquals(RANGE_START.plusHours(3), shipped[1]);
+        assertEquals(RANGE_START.plusHours(1), firstUser[0]);
+        assertEquals(RANGE_START.plusHours(3), firstUser[1]);
+        assertEquals(RANGE_START.plusHours(4), both[0]);
+        assertEquals(RANGE_START.plusHours(4), both[1]);
+    }
+
+    @Test
+    public void testExportOrdersByDateRangeWritesEmptyArrayForEmptyRange() throws Exception {
+        User user = saveUser("empty");
+        saveOrder(user, RANGE_START, Order.OrderStatus.PENDING);
+
+        List<JsonNode> orders = exportRange(RANGE_START.minusYears(1), RANGE_START.minusYears(1).plusDays(1), null, null);
+
+        assertEquals(0, orders.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExportOrdersByDateRangeRejectsReversedRange() throws Exception {
+        exportService.exportOrdersByDateRange(RANGE_START.plusDays(1), RANGE_START, null, null, new ByteArrayOutputStream());
+    }
+
+    /**
+     * Exports the range and returns only the orders of users this test created, so rows other tests
+     * leave in the shared database cannot change what the assertions see.
+     */
+    private List<JsonNode> exportRange(LocalDateTime start, LocalDateTime end, Order.OrderStatus status, Long userId)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = exportService.exportOrdersByDateRange(start, end, status, userId, out);
+        JsonNode exported = objectMapper.readTree(out.toByteArray());
+        assertTrue(exported.isArray());
+        assertEquals(written, exported.size());
+        Set<String> usernames = users.stream().map(User::getUsername).collect(Collectors.toSet());
+        List<JsonNode> orders = new ArrayList<>();
+        for (JsonNode order : exported) {
+            if (usernames.contains(order.get("user").get("username").asText())) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    private User saveUser(String prefix) {
+        User user = userRepository.save(new User(prefix + "-" + System.nanoTime(), prefix + "-" + System.nanoTime() + "@example.com",
+                "secret123", "Ra", "Nge"));
+        users.add(user);
+        return user;
+    }
+
+    private void saveOrder(User user, LocalDateTime orderDate, Order.OrderStatus status) {
+        Order order = new Order(user, "1 Main St");
+        order.setOrderDate(orderDate);
+        order.setStatus(status);
+        orderRepository.save(order);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FulfilmentPipelineTest {
+
+    @Mock
+    private OrderService orderService;
+
+    private FulfilmentPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        pipeline = new FulfilmentPipeline(orderService, 3, 1, 10, 60);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testQueuedTransitionsAreAppliedAsOneBatch() throws Exception {
+        Map<Long, String> rejections = new HashMap<>();
+        rejections.put(2L, "Invalid status transition from PENDING to SHIPPED");
+        when(orderService.applyStatusTransitions(anyMap())).thenReturn(rejections);
+
+        FulfilmentPipeline.Handle first = pipeline.submit(1L, Order.OrderStatus.SHIPPED);
+        FulfilmentPipeline.Handle second = pipeline.submit(2L, Order.OrderStatus.SHIPPED);
+        FulfilmentPipeline.Handle third = pipeline.submit(3L, Order.OrderStatus.DELIVERED);
+        pipeline.start();
+
+        assertEquals(Order.OrderStatus.SHIPPED, first.getFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(Order.OrderStatus.DELIVERED, third.getFuture().get(5, TimeUnit.SECONDS));
+        try {
+            second.getFuture().get(5, TimeUnit.SECONDS);
+            fail("Expected the second transition to be rejected");
+        } catch (ExecutionException e) {
+            assertEquals(FulfilmentPipeline.State.REJECTED, second.getState());
+            assertEquals("Invalid status transition from PENDING to SHIPPED", second.getError());
+        }
+
+        ArgumentCaptor<Map<Long, Order.OrderStatus>> targets = ArgumentCaptor.forClass(Map.class);
+        verify(orderService, times(1)).applyStatusTransitions(targets.capture());
+        assertEquals(3, targets.getValue().size());
+        assertSame(first, pipeline.getHandle(first.getId()));
+    }
+
+    @Test
+    public void testConfirmationsGoThroughConfirmOrder() throws Exception {
+        FulfilmentPipeline.Handle handle = pipeline.submit(7L, Order.OrderStatus.CONFIRMED);
+        pipeline.start();
+
+        assertEquals(Order.OrderStatus.CONFIRMED, handle.getFuture().get(5, TimeUnit.SECONDS));
+        verify(orderService).confirmOrder(7L);
+        verify(orderService, never()).applyStatusTransitions(anyMap());
+    }
+
+    @Test
+    public void testRefusesWhenQueueIsFull() {
+        for (long id = 1; id <= 3; id++) {
+            pipeline.submit(id, Order.OrderStatus.SHIPPED);
+        }
+        try {
+            pipeline.submit(4L, Order.OrderStatus.SHIPPED);
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1L, pipeline.getStats().get("refused"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRefusesCancellation() {
+        pipeline.submit(1L, Order.OrderStatus.CANCELLED);
+    }
+
+    @Test
+    public void testSameOrderTwiceIsAppliedInOrder() throws Exception {
+        when(orderService.applyStatusTransitions(anyMap())).thenReturn(Collections.emptyMap());
+
+        FulfilmentPipeline.Handle shipped = pipeline.submit(1L, Order.OrderStatus.SHIPPED);
+        FulfilmentPipeline.Handle delivered = pipeline.submit(1L, Order.OrderStatus.DELIVERED);
+        pipeline.start();
+
+        shipped.getFuture().get(5, TimeUnit.SECONDS);
+        delivered.getFuture().get(5, TimeUnit.SECONDS);
+        verify(orderService).applyStatusTransitions(Collections.singletonMap(1L, Order.OrderStatus.SHIPPED));
+        verify(orderService).applyStatusTransitions(Collections.singletonMap(1L, Order.OrderStatus.DELIVERED));
+    }
+
+    @Test
+    public void testOrderKeepsItsWorkerSoLaterTransitionsNeverOvertake() throws Exception {
+        pipeline.stop();
+        pipeline = new FulfilmentPipeline(orderService, 100, 4, 3, 60);
+        Map<Long, Order.OrderStatus> statuses = new ConcurrentHashMap<>();
+        when(orderService.applyStatusTransitions(anyMap())).thenAnswer(invocation -> {
+            Map<Long, Order.OrderStatus> targets = invocation.getArgument(0);
+            Map<Long, String> rejections = new HashMap<>();
+            for (Map.Entry<Long, Order.OrderStatus> target : targets.entrySet()) {
+                Order.OrderStatus current = statuses.getOrDefault(target.getKey(), Order.OrderStatus.CONFIRMED);
+                if (target.getValue() == Order.OrderStatus.DELIVERED && current != Order.OrderStatus.SHIPPED) {
+                    rejections.put(target.getKey(), "Invalid status transition from " + current + " to DELIVERED");
+                } else {
+                    statuses.put(target.getKey(), target.getValue());
+                }
+            }
+            // Slow batches give another worker the chance to run ahead if an order were split across workers
+            Thread.sleep(5);
+            return rejections;
+        });
+
+        List<FulfilmentPipeline.Handle> handles = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            handles.add(pipeline.submit(id, Order.OrderStatus.SHIPPED));
+            handles.add(pipeline.submit(id, Order.OrderStatus.DELIVERED));
+        }
+        pipeline.start();
+
+        for (FulfilmentPipeline.Handle handle : handles) {
+            assertEquals(handle.getTargetStatus(), handle.getFuture().get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(40L, pipeline.getStats().get("applied"));
+    }
+}
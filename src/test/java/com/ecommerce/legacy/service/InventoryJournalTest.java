@@ -0,0 +1,148 @@
+package com.ecommerce.legacy.service;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class InventoryJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InventoryJournal journal;
+
+    @After
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testBalancesFollowReasons() throws IOException {
+        journal = open();
+        journal.append(1L, 10, InventoryJournal.Reason.INITIAL, null);
+        journal.append(1L, -3, InventoryJournal.Reason.SALE, 7L);
+        journal.append(1L, 3, InventoryJournal.Reason.CANCELLATION, 7L);
+        journal.append(1L, -4, InventoryJournal.Reason.SALE, 8L);
+        journal.append(2L, 5, InventoryJournal.Reason.INITIAL, null);
+        journal.append(2L, 0, InventoryJournal.Reason.DELETION, null);
+
+        assertEquals(Long.valueOf(6), journal.getBalance(1L));
+        assertNull(journal.getBalance(2L));
+        assertEquals(6L, journal.getStats().get("lastSequence"));
+    }
+
+    @Test
+    public void testReplaysRecordsAfterSnapshotOnRestart() throws IOException {
+        journal = open();
+        journal.append(1L, 10, InventoryJournal.Reason.INITIAL, null);
+        journal.snapshot();
+        journal.append(1L, -2, InventoryJournal.Reason.SALE, 3L);
+        journal.append(2L, 4, InventoryJournal.Reason.INITIAL, null);
+        journal.release();
+
+        journal = open();
+
+        assertEquals(Long.valueOf(8), journal.getBalance(1L));
+        assertEquals(Long.valueOf(4), journal.getBalance(2L));
+        assertEquals(1L, journal.getStats().get("snapshotSequence"));
+        journal.append(1L, -1, InventoryJournal.Reason.SALE, 4L);
+        assertEquals(4L, journal.getStats().get("lastSequence"));
+    }
+
+    @Test
+    public void testTornRecordAtTailIsDropped() throws IOException {
+        journal = open();
+        journal.append(1L, 10, InventoryJournal.Reason.INITIAL, null);
+        journal.append(1L, -2, InventoryJournal.Reason.SALE, 3L);
+        journal.release();
+
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(InventoryJournal.RECORD_SIZE + 20);
+            file.writeInt(12345);
+        }
+        journal = open();
+
+        assertEquals(Long.valueOf(10), journal.getBalance(1L));
+        journal.append(1L, -1, InventoryJournal.Reason.SALE, 5L);
+        assertEquals(2L, journal.getStats().get("lastSequence"));
+        assertEquals(Long.valueOf(9), journal.getBalance(1L));
+    }
+
+    @Test
+    public void testRecordsAfterDamagedRecordAreNeverReplayed() throws IOException {
+        journal = open();
+        journal.append(1L, 10, InventoryJournal.Reason.INITIAL, null);
+        journal.append(1L, -2, InventoryJournal.Reason.SALE, 3L);
+        journal.append(1L, -3, InventoryJournal.Reason.SALE, 4L);
+        journal.append(2L, 7, InventoryJournal.Reason.INITIAL, null);
+        journal.release();
+
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(InventoryJournal.RECORD_SIZE + 20);
+            file.writeInt(12345);
+        }
+        journal = open();
+
+        assertEquals(Long.valueOf(10), journal.getBalance(1L));
+        assertNull(journal.getBalance(2L));
+        assertEquals(1L, journal.getStats().get("lastSequence"));
+
+        // The new record takes the damaged slot; the stale ones behind it must stay dead
+        journal.append(1L, -1, InventoryJournal.Reason.SALE, 5L);
+        journal.release();
+        journal = open();
+
+        assertEquals(Long.valueOf(9), journal.getBalance(1L));
+        assertNull(journal.getBalance(2L));
+        assertEquals(2L, journal.getStats().get("lastSequence"));
+    }
+
+    @Test
+    public void testRollsOverToNewSegmentWhenFull() throws IOException {
+        journal = open();
+        int perSegment = 1024 * 1024 / InventoryJournal.RECORD_SIZE;
+        journal.append(1L, 0, InventoryJournal.Reason.INITIAL, null);
+        for (int i = 0; i < perSegment; i++) {
+            journal.append(1L, 1, InventoryJournal.Reason.ADJUSTMENT, null);
+        }
+        journal.release();
+
+        assertEquals(2, segments().size());
+        journal = open();
+        assertEquals(Long.valueOf(perSegment), journal.getBalance(1L));
+    }
+
+    @Test
+    public void testSecondJournalOnSameDirectoryIsDisabled() throws IOException {
+        journal = open();
+        InventoryJournal second = open();
+
+        assertTrue(journal.isEnabled());
+        assertFalse(second.isEnabled());
+    }
+
+    private InventoryJournal open() throws IOException {
+        InventoryJournal opened = new InventoryJournal(folder.getRoot().getPath(), 1);
+        opened.open();
+        return opened;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+}
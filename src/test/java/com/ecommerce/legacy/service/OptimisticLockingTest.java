@@ -0,0 +1,68 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.ProductRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.jpa.show-sql=false")
+public class OptimisticLockingTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product product;
+
+    @Before
+    public void setUp() {
+        product = productService.createProduct(new Product("Versioned", "Original", new BigDecimal("4.00"), 10,
+                "Locking", "LOCK-" + System.nanoTime()));
+    }
+
+    @After
+    public void tearDown() {
+        productService.deleteProduct(product.getId());
+    }
+
+    @Test
+    public void testStaleCopyCannotOverwriteNewerRow() {
+        Product stale = productRepository.findById(product.getId()).get();
+
+        productService.updateStock(product.getId(), 7);
+        stale.setDescription("Edited from a stale copy");
+
+        try {
+            productRepository.save(stale);
+            fail("Expected ObjectOptimisticLockingFailureException");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            Product current = productRepository.findById(product.getId()).get();
+            assertEquals(Integer.valueOf(7), current.getStockQuantity());
+            assertEquals("Original", current.getDescription());
+        }
+    }
+
+    @Test
+    public void testBulkStockUpdateBumpsVersion() {
+        Long before = productRepository.findById(product.getId()).get().getVersion();
+
+        assertTrue(productService.reserveStock(product.getId(), 3));
+
+        Product current = productRepository.findById(product.getId()).get();
+        assertEquals(Long.valueOf(before + 1), current.getVersion());
+        assertEquals(Integer.valueOf(7), current.getStockQuantity());
+    }
+}
@@ -0,0 +1,106 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.OrderItemRequest;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderItemRepository;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.jpa.show-sql=false")
+public class OrderBatchItemsTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private final List<Product> products = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        user = userRepository.save(new User("batch-" + System.nanoTime(), "batch@example.com", "secret123", "Bat", "Ch"));
+        products.add(new Product("Batch A", null, new BigDecimal("2.50"), 10, "Batch", "BAT-" + System.nanoTime() + "-a"));
+        products.add(new Product("Batch B", null, new BigDecimal("4.00"), 3, "Batch", "BAT-" + System.nanoTime() + "-b"));
+        productRepository.saveAll(products);
+    }
+
+    @After
+    public void tearDown() {
+        for (Order order : orderRepository.findByUser(user)) {
+            reservationLedger.releaseOrder(order.getId());
+            orderRepository.delete(order);
+        }
+        productRepository.deleteAll(products);
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void testAddsEveryLineAndTotalsOnce() {
+        Order order = orderService.createOrder(user.getId(), "1 Main St");
+
+        Map<String, Object> result = orderService.addItemsToOrder(order.getId(), Arrays.asList(
+                new OrderItemRequest(products.get(0).getId(), 4),
+                new OrderItemRequest(products.get(1).getId(), 3)));
+
+        assertEquals(Boolean.TRUE, result.get("added"));
+        Order saved = (Order) result.get("order");
+        assertEquals(2, orderItemRepository.findByOrderId(order.getId()).size());
+        assertEquals(0, new BigDecimal("22.00").compareTo(saved.getTotalAmount()));
+        assertEquals(4, reservationLedger.heldQuantity(products.get(0).getId()));
+        assertEquals(3, reservationLedger.heldQuantity(products.get(1).getId()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testShortLineRejectsWholeBatch() {
+        Order order = orderService.createOrder(user.getId(), "1 Main St");
+
+        Map<String, Object> result = orderService.addItemsToOrder(order.getId(), Arrays.asList(
+                new OrderItemRequest(products.get(0).getId(), 4),
+                new OrderItemRequest(products.get(1).getId(), 5),
+                new OrderItemRequest(-1L, 1),
+                new OrderItemRequest(products.get(0).getId(), 0)));
+
+        assertEquals(Boolean.FALSE, result.get("added"));
+        List<Map<String, Object>> lines = (List<Map<String, Object>>) result.get("lines");
+        assertEquals("ADDED", lines.get(0).get("status"));
+        assertEquals("INSUFFICIENT_STOCK", lines.get(1).get("status"));
+        assertEquals("NOT_FOUND", lines.get(2).get("status"));
+        assertEquals("INVALID", lines.get(3).get("status"));
+        assertEquals(0, reservationLedger.heldQuantity(products.get(0).getId()));
+        assertTrue(orderItemRepository.findByOrderId(order.getId()).isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.BulkStatusRequest;
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.jpa.show-sql=false")
+public class OrderBulkStatusTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @Before
+    public void setUp() {
+        user = userRepository.save(new User("bulk-" + System.nanoTime(), "bulk@example.com", "secret123", "Bu", "Lk"));
+    }
+
+    @After
+    public void tearDown() {
+        orderRepository.deleteAll(orderRepository.findByUser(user));
+        userRepository.delete(user);
+    }
+
+    @Test
+    public void testByIdsMovesOnlyAllowedPredecessors() {
+        Order first = confirmedOrder();
+        Order second = confirmedOrder();
+        Order pending = orderService.createOrder(user.getId(), "1 Main St");
+
+        Map<String, Object> result = orderService.bulkUpdateStatus(byIds(Order.OrderStatus.SHIPPED,
+                first.getId(), second.getId(), pending.getId(), -1L));
+
+        assertEquals(2, result.get("transitioned"));
+        assertEquals(Arrays.asList(pending.getId(), -1L), result.get("rejectedIds"));
+        assertEquals(Order.OrderStatus.SHIPPED, orderService.getOrderById(first.getId()).getStatus());
+        assertEquals(Order.OrderStatus.PENDING, orderService.getOrderById(pending.getId()).getStatus());
+    }
+
+    @Test
+    public void testByFilterMovesOrdersInDateRange() {
+        Order inRange = confirmedOrder();
+        Order outOfRange = confirmedOrder();
+        outOfRange.setOrderDate(LocalDateTime.now().minusDays(30));
+        orderRepository.save(outOfRange);
+
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setCurrentStatus(Order.OrderStatus.CONFIRMED);
+        request.setStartDate(LocalDateTime.now().minusDays(1));
+        request.setTargetStatus(Order.OrderStatus.SHIPPED);
+        Map<String, Object> result = orderService.bulkUpdateStatus(request);
+
+        assertTrue((Integer) result.get("transitioned") >= 1);
+        assertEquals(Collections.emptyList(), result.get("rejectedIds"));
+        assertEquals(Order.OrderStatus.SHIPPED, orderService.getOrderById(inRange.getId()).getStatus());
+        assertEquals(Order.OrderStatus.CONFIRMED, orderService.getOrderById(outOfRange.getId()).getStatus());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testByFilterRejectsInvalidTransition() {
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setCurrentStatus(Order.OrderStatus.PENDING);
+        request.setTargetStatus(Order.OrderStatus.DELIVERED);
+        orderService.bulkUpdateStatus(request);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTargetThatMovesStock() {
+        orderService.bulkUpdateStatus(byIds(Order.OrderStatus.CANCELLED, 1L));
+    }
+
+    private Order confirmedOrder() {
+        Order order = orderService.createOrder(user.getId(), "1 Main St");
+        return orderService.confirmOrder(order.getId());
+    }
+
+    private static BulkStatusRequest byIds(Order.OrderStatus target, Long... ids) {
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setOrderIds(Arrays.asList(ids));
+        request.setTargetStatus(target);
+        return request;
+    }
+}
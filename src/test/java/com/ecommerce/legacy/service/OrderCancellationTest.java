@@ -0,0 +1,122 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class OrderCancellationTest {
+
+    private static final int LINES = 200;
+    private static final int INITIAL_STOCK = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private final List<Product> products = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        user = userRepository.save(new User("cancel-" + System.nanoTime(), "cancel-" + System.nanoTime() + "@example.com",
+                "secret123", "Can", "Cel"));
+        for (int i = 0; i < LINES; i++) {
+            products.add(new Product("Cancel " + i, null, new BigDecimal("2.00"), INITIAL_STOCK, "Cancel", "CAN-" + System.nanoTime() + "-" + i));
+        }
+        productRepository.saveAll(products);
+    }
+
+    @After
+    public void tearDown() {
+        // Confirming and cancelling bump the product versions in bulk, so the held entities are stale; delete by id
+        try {
+            orderRepository.deleteAll(orderRepository.findByUser(user));
+            productRepository.deleteAllById(products.stream().map(Product::getId).collect(Collectors.toList()));
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    public void testCancelRestoresStockOfManyLinesInFewStatements() {
+        Order order = orderService.createOrder(user.getId(), "1 Main St");
+        for (Product product : products) {
+            orderService.addItemToOrder(order.getId(), product.getId(), 2);
+        }
+        // The same product on a second line is restored with the aggregated quantity
+        orderService.addItemToOrder(order.getId(), products.get(0).getId(), 3);
+        orderService.confirmOrder(order.getId());
+        assertEquals(Integer.valueOf(INITIAL_STOCK - 5), stockOf(products.get(0)));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        orderService.cancelOrder(order.getId());
+
+        assertTrue("Expected a handful of statements, got " + statistics.getPrepareStatementCount(),
+                statistics.getPrepareStatementCount() <= 5);
+        assertEquals(Integer.valueOf(INITIAL_STOCK), stockOf(products.get(0)));
+        assertEquals(Integer.valueOf(INITIAL_STOCK), stockOf(products.get(LINES - 1)));
+    }
+
+    @Test
+    public void testCancelOrdersReportsEachOrder() {
+        Order pending = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.addItemToOrder(pending.getId(), products.get(0).getId(), 4);
+        Order confirmed = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.addItemToOrder(confirmed.getId(), products.get(0).getId(), 6);
+        orderService.confirmOrder(confirmed.getId());
+        Order shipped = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.confirmOrder(shipped.getId());
+        orderService.shipOrder(shipped.getId());
+
+        List<Map<String, Object>> results = orderService.cancelOrders(
+                Arrays.asList(pending.getId(), confirmed.getId(), shipped.getId(), -1L));
+
+        assertEquals("CANCELLED", results.get(0).get("status"));
+        assertEquals("CANCELLED", results.get(1).get("status"));
+        assertEquals("REJECTED", results.get(2).get("status"));
+        assertEquals("NOT_FOUND", results.get(3).get("status"));
+        assertEquals(Integer.valueOf(INITIAL_STOCK), stockOf(products.get(0)));
+        assertEquals(Order.OrderStatus.SHIPPED, orderService.getOrderById(shipped.getId()).getStatus());
+    }
+
+    private Integer stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow(IllegalStateException::new).getStockQuantity();
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Order;
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.User;
+import com.ecommerce.legacy.repository.OrderRepository;
+import com.ecommerce.legacy.repository.ProductRepository;
+import com.ecommerce.legacy.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.jpa.show-sql=false")
+public class OrderConfirmationTest {
+
+    private static final int INITIAL_STOCK = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product product;
+
+    @Before
+    public void setUp() {
+        user = userRepository.save(new User("confirm-" + System.nanoTime(), "confirm-" + System.nanoTime() + "@example.com",
+                "secret123", "Con", "Firm"));
+        product = productRepository.save(new Product("Confirm", null, new BigDecimal("2.00"), INITIAL_STOCK, "Confirm",
+                "CON-" + System.nanoTime()));
+    }
+
+    @After
+    public void tearDown() {
+        // Confirming bumps the product's version in bulk, so the held entity is stale; delete by id
+        try {
+            for (Order order : orderRepository.findByUser(user)) {
+                reservationLedger.releaseOrder(order.getId());
+                orderRepository.delete(order);
+            }
+            productRepository.deleteById(product.getId());
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    public void testExpiredOrderCannotTakeStockHeldByAnother() {
+        Order expired = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.addItemToOrder(expired.getId(), product.getId(), 3);
+        // Stands in for the hold expiring
+        reservationLedger.releaseOrder(expired.getId());
+        Order holding = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.addItemToOrder(holding.getId(), product.getId(), 4);
+
+        try {
+            orderService.confirmOrder(expired.getId());
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Insufficient stock"));
+        }
+        assertEquals(0, reservationLedger.heldQuantity(expired.getId(), product.getId()));
+        assertEquals(Integer.valueOf(INITIAL_STOCK), stockOf(product));
+
+        orderService.confirmOrder(holding.getId());
+        assertEquals(Integer.valueOf(INITIAL_STOCK - 4), stockOf(product));
+    }
+
+    @Test
+    public void testExpiredOrderConfirmsWhenStockIsFree() {
+        Order expired = orderService.createOrder(user.getId(), "1 Main St");
+        orderService.addItemToOrder(expired.getId(), product.getId(), 3);
+        reservationLedger.releaseOrder(expired.getId());
+
+        orderService.confirmOrder(expired.getId());
+
+        assertEquals(Integer.valueOf(INITIAL_STOCK - 3), stockOf(product));
+        assertEquals(0, reservationLedger.heldQuantity(product.getId()));
+    }
+
+    private Integer stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow(IllegalStateException::new).getStockQuantity();
+    }
+}
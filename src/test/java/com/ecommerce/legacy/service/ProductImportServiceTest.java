@@ -0,0 +1,104 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.ProductRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.jpa.show-sql=false", "product.import.batch-size=2"})
+public class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<String> importedSkus = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (String sku : importedSkus) {
+            productRepository.findBySku(sku).ifPresent(product -> productService.deleteProduct(product.getId()));
+        }
+    }
+
+    @Test
+    public void testImportNdjsonReportsRowErrors() throws Exception {
+        productRepository.save(new Product("Existing", "Already there", new BigDecimal("5.00"), 1, "Books", "IMP-EXISTING"));
+        importedSkus.add("IMP-EXISTING");
+        importedSkus.add("IMP-J1");
+        importedSkus.add("IMP-J2");
+
+        String body = "{\"name\":\"Json One\",\"price\":10.50,\"stockQuantity\":3,\"category\":\"Books\",\"sku\":\"IMP-J1\"}\n"
+                + "{\"name\":\"Json Two\",\"price\":11.00,\"stockQuantity\":0,\"category\":\"Books\",\"sku\":\"IMP-J2\"}\n"
+                + "\n"
+                + "{\"name\":\"Duplicate\",\"price\":12.00,\"stockQuantity\":1,\"category\":\"Books\",\"sku\":\"IMP-J1\"}\n"
+                + "{\"name\":\"Existing\",\"price\":12.00,\"stockQuantity\":1,\"category\":\"Books\",\"sku\":\"IMP-EXISTING\"}\n"
+                + "{\"name\":\"\",\"price\":12.00,\"stockQuantity\":1,\"category\":\"Books\",\"sku\":\"IMP-J3\"}\n"
+                + "{not json\n";
+
+        Map<String, Object> report = productImportService.importProducts(stream(body), ProductImportService.FORMAT_NDJSON);
+
+        assertEquals(2, report.get("imported"));
+        assertEquals(4, report.get("failed"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) report.get("errors");
+        assertEquals(4, errors.size());
+        assertTrue(productRepository.findBySku("IMP-J1").isPresent());
+        assertEquals(Integer.valueOf(3), productRepository.findBySku("IMP-J1").get().getStockQuantity());
+        assertFalse(productService.searchProductsByName("json two", 10).isEmpty());
+    }
+
+    @Test
+    public void testImportCsvWithQuotedFields() throws Exception {
+        importedSkus.add("IMP-C1");
+        importedSkus.add("IMP-C2");
+
+        String body = "sku,name,description,price,stockQuantity,category\n"
+                + "IMP-C1,Csv Lamp,\"Warm, dimmable \"\"smart\"\" lamp\",24.99,5,Home\n"
+                + "IMP-C2,Csv Chair,Oak chair,89.00,2,Home\n"
+                + "IMP-C3,Csv Broken,Bad price,abc,2,Home\n";
+
+        Map<String, Object> report = productImportService.importProducts(stream(body), ProductImportService.FORMAT_CSV);
+
+        assertEquals(2, report.get("imported"));
+        assertEquals(1, report.get("failed"));
+        Product lamp = productRepository.findBySku("IMP-C1").get();
+        assertEquals("Warm, dimmable \"smart\" lamp", lamp.getDescription());
+        assertEquals(0, new BigDecimal("24.99").compareTo(lamp.getPrice()));
+    }
+
+    @Test
+    public void testImportCsvRequiresHeaderColumns() throws Exception {
+        try {
+            productImportService.importProducts(stream("name,category\nLamp,Home\n"), ProductImportService.FORMAT_CSV);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("CSV header must include name, price and sku columns", e.getMessage());
+        }
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,25 +1,38 @@
 package com.ecommerce.legacy.service;
 
+import com.ecommerce.legacy.model.AvailabilityRequest;
 import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.model.ProductSummary;
 import com.ecommerce.legacy.repository.ProductRepository;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityNotFoundException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -28,6 +41,30 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Spy
+    private ProductCache productCache = new ProductCache(100, 60);
+
+    @Spy
+    private ProductSearchIndex productSearchIndex = new ProductSearchIndex();
+
+    @Spy
+    private ProductPriceIndex productPriceIndex = new ProductPriceIndex();
+
+    @Spy
+    private ProductAvailabilityIndex productAvailabilityIndex = new ProductAvailabilityIndex();
+
+    @Spy
+    private ReservationLedger reservationLedger = new ReservationLedger(900);
+
+    @Spy
+    private HotStockCounters hotStockCounters = new HotStockCounters();
+
+    @Mock
+    private InventoryJournal inventoryJournal;
+
+    @Mock
+    private ConflictRetryAspect conflictRetryAspect;
+
     @InjectMocks
     private ProductService productService;
 
@@ -146,13 +183,39 @@ public class ProductServiceTest {
     @Test
     public void testSearchProductsByName() {
         List<Product> productList = Arrays.asList(testProduct);
-        when(productRepository.findByNameContaining(anyString())).thenReturn(productList);
+        productSearchIndex.index(1L, "Test Product", "Test Description");
+        when(productRepository.findAllById(anyList())).thenReturn(productList);
 
-        List<Product> result = productService.searchProductsByName("Test");
+        List<Product> result = productService.searchProductsByName("test", 10);
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(productRepository, times(1)).findByNameContaining("Test");
+        verify(productRepository, never()).findByNameContaining(anyString());
+    }
+
+    @Test
+    public void testSearchProductsByName_RanksNameMatchesFirst() {
+        productSearchIndex.index(1L, "Garden Hose", "Keeps the lamp post watered");
+        productSearchIndex.index(2L, "Desk Lamp", "Adjustable arm");
+        productSearchIndex.index(3L, "Lamp", "Ceiling fitting");
+        productSearchIndex.index(4L, "Chair", "Solid oak");
+
+        List<Long> result = productSearchIndex.search("LAMP", 10);
+
+        assertEquals(Arrays.asList(3L, 2L, 1L), result);
+    }
+
+    @Test
+    public void testSearchProductsByName_IndexFollowsUpdatesAndDeletes() {
+        when(productRepository.existsBySku(anyString())).thenReturn(false);
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(productRepository.existsById(anyLong())).thenReturn(true);
+
+        productService.createProduct(testProduct);
+        assertEquals(Arrays.asList(1L), productSearchIndex.search("prod", 10));
+
+        productService.deleteProduct(1L);
+        assertTrue(productSearchIndex.search("prod", 10).isEmpty());
     }
 
     @Test
@@ -160,15 +223,69 @@ public class ProductServiceTest {
         List<Product> productList = Arrays.asList(testProduct);
         BigDecimal minPrice = new BigDecimal("20.00");
         BigDecimal maxPrice = new BigDecimal("50.00");
-        
-        when(productRepository.findByPriceBetween(any(BigDecimal.class), any(BigDecimal.class)))
-                .thenReturn(productList);
+        productPriceIndex.put(1L, testProduct.getPrice(), testProduct.getCategory());
+        productPriceIndex.put(2L, new BigDecimal("59.99"), "Electronics");
+        when(productRepository.findAllById(anyList())).thenReturn(productList);
 
-        List<Product> result = productService.getProductsByPriceRange(minPrice, maxPrice);
+        List<Product> result = productService.getProductsByPriceRange(minPrice, maxPrice, null, 10);
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(productRepository, times(1)).findByPriceBetween(minPrice, maxPrice);
+        verify(productRepository, never()).findByPriceBetween(any(BigDecimal.class), any(BigDecimal.class));
+    }
+
+    @Test
+    public void testGetProductsByPriceRange_InvalidRange() {
+        try {
+            productService.getProductsByPriceRange(new BigDecimal("50.00"), new BigDecimal("20.00"), null, 10);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Minimum price must not be greater than maximum price"));
+        }
+    }
+
+    @Test
+    public void testPriceIndex_CategoryFilterAndLimit() {
+        productPriceIndex.put(1L, new BigDecimal("10.00"), "Books");
+        productPriceIndex.put(2L, new BigDecimal("5.00"), "Books");
+        productPriceIndex.put(3L, new BigDecimal("7.50"), "Garden");
+        productPriceIndex.put(4L, new BigDecimal("7.50"), "Books");
+
+        assertEquals(Arrays.asList(2L, 4L, 1L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("100"), "Books", 10));
+        assertEquals(Arrays.asList(2L, 3L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("100"), null, 2));
+        assertTrue(productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("100"), "Toys", 10).isEmpty());
+    }
+
+    @Test
+    public void testPriceIndex_UnchangedUpsertsAreSkippedAndLatestWins() {
+        productPriceIndex.put(1L, new BigDecimal("10.00"), "Books");
+        productPriceIndex.put(2L, new BigDecimal("5.00"), "Books");
+
+        productPriceIndex.put(1L, new BigDecimal("10.00"), "Books");
+        productPriceIndex.putAll(Arrays.asList(
+                new ProductPriceIndex.Entry(2L, new BigDecimal("50.00"), "Garden"),
+                new ProductPriceIndex.Entry(2L, new BigDecimal("5.00"), "Books")));
+
+        assertEquals(2, productPriceIndex.size());
+        assertEquals(Arrays.asList(2L, 1L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("100"), "Books", 10));
+        productPriceIndex.put(1L, new BigDecimal("10.00"), "Garden");
+        assertEquals(Arrays.asList(1L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("100"), "Garden", 10));
+        assertEquals(Arrays.asList(2L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("100"), "Books", 10));
+    }
+
+    @Test
+    public void testUpdateProduct_MovesProductInPriceIndex() {
+        Product updateDetails = new Product();
+        updateDetails.setPrice(new BigDecimal("99.00"));
+        productPriceIndex.put(1L, testProduct.getPrice(), testProduct.getCategory());
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        productService.updateProduct(1L, updateDetails);
+
+        assertTrue(productPriceIndex.findIds(new BigDecimal("20.00"), new BigDecimal("50.00"), null, 10).isEmpty());
+        assertEquals(Arrays.asList(1L), productPriceIndex.findIds(new BigDecimal("90.00"), new BigDecimal("100.00"), null, 10));
+        assertEquals(1, productPriceIndex.size());
     }
 
     @Test
@@ -237,4 +354,428 @@ public class ProductServiceTest {
 
         assertFalse(result);
     }
+
+    @Test
+    public void testIsProductAvailable_AnsweredFromIndex() {
+        productAvailabilityIndex.put(1L, 10);
+
+        assertTrue(productService.isProductAvailable(1L, 10));
+        assertFalse(productService.isProductAvailable(1L, 11));
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testIsProductAvailable_ExcludesHeldStock() {
+        productAvailabilityIndex.put(1L, 10);
+        reservationLedger.hold(7L, 1L, 4, 10);
+
+        assertTrue(productService.isProductAvailable(1L, 6));
+        assertFalse(productService.isProductAvailable(1L, 7));
+    }
+
+    @Test
+    public void testReserveAndUpdateStock_KeepAvailabilityIndexCurrent() {
+        productAvailabilityIndex.put(1L, 5);
+        when(productRepository.decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class))).thenReturn(1);
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        productService.reserveStock(1L, 5);
+        assertEquals(Integer.valueOf(0), productAvailabilityIndex.getStock(1L));
+        assertTrue(productAvailabilityIndex.inStockIds().isEmpty());
+
+        productService.updateStock(1L, 7);
+        assertEquals(Integer.valueOf(7), productAvailabilityIndex.getStock(1L));
+        assertEquals(Arrays.asList(1L), productAvailabilityIndex.inStockIds());
+    }
+
+    @Test
+    public void testGetAvailableProducts_UsesIndexAndProjectionWithoutCaching() {
+        productAvailabilityIndex.put(1L, 3);
+        productAvailabilityIndex.put(2L, 0);
+        ProductSummary summary = new ProductSummary(1L, "Test Product", "Test Description", new BigDecimal("29.99"),
+                3, "Electronics", "TEST-001", null, testProduct.getCreatedAt(), testProduct.getUpdatedAt());
+        when(productRepository.findSummariesByIdIn(Arrays.asList(1L))).thenReturn(Arrays.asList(summary));
+
+        List<ProductSummary> result = productService.getAvailableProducts();
+
+        assertEquals(Arrays.asList(summary), result);
+        verify(productRepository, never()).findAvailableProducts();
+        verify(productRepository, never()).findAllById(any());
+        assertEquals(0, productCache.getStats().get("size"));
+    }
+
+    @Test
+    public void testGetProductsByIds_RequestOrderWithStatus() {
+        Product second = new Product("Second", "Another", new BigDecimal("5.00"), 1, "Books", "SKU-2");
+        second.setId(2L);
+        when(productRepository.findAllById(anyList())).thenReturn(Arrays.asList(second, testProduct));
+
+        List<Map<String, Object>> result = productService.getProductsByIds(Arrays.asList(2L, 99L, 1L, 2L));
+
+        assertEquals(4, result.size());
+        assertSame(second, result.get(0).get("product"));
+        assertEquals("NOT_FOUND", result.get(1).get("status"));
+        assertSame(testProduct, result.get(2).get("product"));
+        assertEquals("FOUND", result.get(3).get("status"));
+        verify(productRepository, times(1)).findAllById(anyList());
+    }
+
+    @Test
+    public void testCheckAvailability_IndexFirstThenSingleQuery() {
+        productAvailabilityIndex.put(2L, 3);
+        when(productRepository.findAllById(any())).thenReturn(Arrays.asList(testProduct));
+
+        List<Map<String, Object>> result = productService.checkAvailability(Arrays.asList(
+                new AvailabilityRequest(1L, 100),
+                new AvailabilityRequest(2L, 5),
+                new AvailabilityRequest(3L, 1),
+                new AvailabilityRequest(1L, 0)));
+
+        assertEquals("AVAILABLE", result.get(0).get("status"));
+        assertEquals("INSUFFICIENT_STOCK", result.get(1).get("status"));
+        assertEquals(3, result.get(1).get("availableStock"));
+        assertEquals("NOT_FOUND", result.get(2).get("status"));
+        assertEquals("INVALID", result.get(3).get("status"));
+        verify(productRepository, times(1)).findAllById(any());
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testCheckAvailability_HotProductReadsCounters() {
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testProduct));
+        productService.enableHotStock(1L, 4);
+        productAvailabilityIndex.put(1L, 100);
+        productService.reserveStock(1L, 60);
+
+        List<Map<String, Object>> result = productService.checkAvailability(Arrays.asList(
+                new AvailabilityRequest(1L, 41),
+                new AvailabilityRequest(1L, 40)));
+
+        assertEquals("INSUFFICIENT_STOCK", result.get(0).get("status"));
+        assertEquals(40, result.get(0).get("availableStock"));
+        assertEquals("AVAILABLE", result.get(1).get("status"));
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void testCheckAvailability_Empty() {
+        try {
+            productService.checkAvailability(Collections.emptyList());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("At least one item is required", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReserveStock_Success() {
+        when(productRepository.decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class))).thenReturn(1);
+
+        boolean result = productService.reserveStock(1L, 5);
+
+        assertTrue(result);
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    public void testReserveStock_Insufficient() {
+        when(productRepository.decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class))).thenReturn(0);
+
+        boolean result = productService.reserveStock(1L, 500);
+
+        assertFalse(result);
+    }
+
+    @Test
+    public void testReserveStock_InvalidQuantity() {
+        try {
+            productService.reserveStock(1L, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Quantity must be greater than zero"));
+        }
+
+        verify(productRepository, never()).decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void testReserveStock_HotProductServedFromCounters() {
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testProduct));
+        productService.enableHotStock(1L, 4);
+
+        assertTrue(productService.reserveStock(1L, 60));
+        assertFalse(productService.reserveStock(1L, 41));
+        assertTrue(productService.reserveStock(1L, 40));
+
+        verify(productRepository, never()).decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class));
+        assertEquals(0, productService.getStockLevel(1L));
+    }
+
+    @Test
+    public void testReserveStock_RefusedWhileHotStockIsBeingEnabled() {
+        hotStockCounters.putIfAbsent(1L, SplitStockCounter.arming(2));
+
+        assertFalse(productService.reserveStock(1L, 1));
+        verify(productRepository, never()).decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void testEnableHotStock_UnknownProductLeavesNoCounter() {
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
+
+        try {
+            productService.enableHotStock(1L, 2);
+            fail("Expected EntityNotFoundException");
+        } catch (EntityNotFoundException e) {
+            assertNull(hotStockCounters.get(1L));
+        }
+    }
+
+    @Test
+    public void testReconcileHotStock_WritesNetChangeOnce() {
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testProduct));
+        productService.enableHotStock(1L, 2);
+        productService.reserveStock(1L, 3);
+        productService.reserveStock(1L, 4);
+
+        productService.reconcileHotStock();
+        productService.reconcileHotStock();
+
+        verify(productRepository, times(1)).adjustStock(eq(1L), eq(-7), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void testUpdateStock_RejectedForHotProduct() {
+        when(productRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testProduct));
+        productService.enableHotStock(1L, 2);
+
+        try {
+            productService.updateStock(1L, 500);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("managed by hot stock counters"));
+        }
+
+        productService.disableHotStock(1L);
+        assertNull(hotStockCounters.get(1L));
+    }
+
+    @Test
+    public void testUpdateStock_JournalsDelta() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+
+        productService.updateStock(1L, 120);
+
+        verify(inventoryJournal).append(1L, 20, InventoryJournal.Reason.ADJUSTMENT, null);
+    }
+
+    @Test
+    public void testGetProductById_CachedAfterFirstLoad() {
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+
+        productService.getProductById(1L);
+        Product result = productService.getProductById(1L);
+
+        assertEquals(testProduct.getName(), result.getName());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testGetProductById_ChangingReturnedProductLeavesCacheAlone() {
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+
+        productService.getProductById(1L).setPrice(new BigDecimal("0.01"));
+        testProduct.setName("Changed After Load");
+        Product result = productService.getProductById(1L);
+
+        assertEquals(new BigDecimal("29.99"), result.getPrice());
+        assertEquals("Test Product", result.getName());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testGetProductBySku_ServedFromIdCache() {
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+
+        productService.getProductById(1L);
+        Product result = productService.getProductBySku("TEST-001");
+
+        assertEquals(testProduct.getId(), result.getId());
+        verify(productRepository, never()).findBySku(anyString());
+    }
+
+    @Test
+    public void testUpdateProduct_RefreshesCache() {
+        Product updatedProduct = new Product("Test Product", "Test Description", new BigDecimal("39.99"),
+                100, "Electronics", "TEST-001");
+        updatedProduct.setId(1L);
+        Product updateDetails = new Product();
+        updateDetails.setPrice(new BigDecimal("39.99"));
+
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenReturn(updatedProduct);
+
+        productService.getProductById(1L);
+        productService.updateProduct(1L, updateDetails);
+        Product result = productService.getProductById(1L);
+
+        assertEquals(new BigDecimal("39.99"), result.getPrice());
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testCreateProduct_IndexedOnlyOnCommit() {
+        when(productRepository.existsBySku(anyString())).thenReturn(false);
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+
+        List<TransactionSynchronization> callbacks = inTransaction(() -> productService.createProduct(testProduct));
+        assertNull(productCache.get(1L));
+        assertTrue(productSearchIndex.search("Test", 10).isEmpty());
+        assertTrue(productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("1000"), "Electronics", 10).isEmpty());
+
+        callbacks.forEach(TransactionSynchronization::afterCommit);
+
+        assertNotNull(productCache.get(1L));
+        assertEquals(Arrays.asList(1L), productSearchIndex.search("Test", 10));
+        assertEquals(Arrays.asList(1L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("1000"), "Electronics", 10));
+    }
+
+    @Test
+    public void testUpdateProduct_RollbackLeavesCacheAndIndexesAlone() {
+        productService.indexProducts(Collections.singletonList(testProduct));
+        productCache.put(testProduct);
+        Product updatedProduct = new Product("Renamed", "Test Description", new BigDecimal("39.99"),
+                100, "Books", "TEST-001");
+        updatedProduct.setId(1L);
+        Product updateDetails = new Product();
+        updateDetails.setName("Renamed");
+        updateDetails.setPrice(new BigDecimal("39.99"));
+        updateDetails.setCategory("Books");
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenReturn(updatedProduct);
+
+        List<TransactionSynchronization> callbacks = inTransaction(() -> productService.updateProduct(1L, updateDetails));
+        callbacks.forEach(callback -> callback.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertNull(productCache.get(1L));
+        assertTrue(productSearchIndex.search("Renamed", 10).isEmpty());
+        assertEquals(Arrays.asList(1L), productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("1000"), "Electronics", 10));
+        assertTrue(productPriceIndex.findIds(BigDecimal.ZERO, new BigDecimal("1000"), "Books", 10).isEmpty());
+    }
+
+    @Test
+    public void testReserveStock_EvictsCachedProduct() {
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStockIfAvailable(anyLong(), anyInt(), any(LocalDateTime.class))).thenReturn(1);
+
+        productService.getProductById(1L);
+        productService.reserveStock(1L, 5);
+        productService.getProductById(1L);
+
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testDeleteProduct_EvictsCachedProduct() {
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(testProduct));
+        when(productRepository.existsById(anyLong())).thenReturn(true);
+
+        productService.getProductById(1L);
+        productService.deleteProduct(1L);
+
+        assertNull(productCache.get(1L));
+        assertEquals(2L, productService.getCacheStats().get("misses"));
+    }
+
+    @Test
+    public void testGetProductsAfter_FirstPageHasNext() {
+        Product second = new Product("Second", "", new BigDecimal("5.00"), 1, "Electronics", "TEST-002");
+        second.setId(2L);
+        when(productRepository.findPageAfterPrice(eq(new BigDecimal("-1")), eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(second, testProduct));
+
+        Slice<Product> result = productService.getProductsAfter(null, "price", null, 1);
+
+        assertEquals(1, result.getNumberOfElements());
+        assertTrue(result.hasNext());
+        assertSame(second, result.getContent().get(0));
+    }
+
+    @Test
+    public void testGetProductsAfter_SeeksPastCursor() {
+        String cursor = KeysetCursor.after(testProduct, "name").encode();
+        when(productRepository.findCategoryPageAfterName(eq("Electronics"), eq("Test Product"), eq(1L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(testProduct));
+
+        Slice<Product> result = productService.getProductsAfter("Electronics", "name", cursor, 10);
+
+        assertEquals(1, result.getNumberOfElements());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    public void testGetProductsAfter_CursorForDifferentSortKey() {
+        String cursor = KeysetCursor.after(testProduct, "name").encode();
+
+        try {
+            productService.getProductsAfter(null, "price", cursor, 10);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Cursor was not issued for sort key"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetFacetedProducts_SinglePassCountsAndHistogram() {
+        productSearchIndex.index(1L, "Test Product", "Test Description");
+        productSearchIndex.index(2L, "Other Product", "");
+        productSearchIndex.index(3L, "Garden Product", "");
+        productSearchIndex.index(4L, "Unrelated", "");
+        productSearchIndex.index(5L, "Held Product", "");
+        productSearchIndex.index(6L, "Sold Product", "");
+        reservationLedger.hold(7L, 5L, 2, 2);
+        productAvailabilityIndex.put(6L, 0);
+        when(productRepository.streamInStockFacetFields(any(BigDecimal.class), any(BigDecimal.class)))
+                .thenReturn(Stream.of(
+                        new Object[]{1L, "Electronics", new BigDecimal("29.99"), 5},
+                        new Object[]{2L, "Electronics", new BigDecimal("10.00"), 1},
+                        new Object[]{3L, "Garden", new BigDecimal("15.00"), 8},
+                        new Object[]{4L, "Electronics", new BigDecimal("5.00"), 2},
+                        new Object[]{5L, "Electronics", new BigDecimal("12.00"), 2},
+                        new Object[]{6L, "Electronics", new BigDecimal("12.00"), 4}));
+        when(productRepository.findAllById(anyList())).thenReturn(Arrays.asList(testProduct));
+
+        Map<String, Object> result = productService.getFacetedProducts("product", "Electronics", null, null, true, 0, 1, 2);
+
+        assertEquals(2, result.get("totalElements"));
+        assertEquals(1, ((List<Product>) result.get("content")).size());
+        Map<String, Long> categories = (Map<String, Long>) result.get("categories");
+        assertEquals(Long.valueOf(2), categories.get("Electronics"));
+        assertEquals(Long.valueOf(1), categories.get("Garden"));
+        List<Map<String, Object>> histogram = (List<Map<String, Object>>) result.get("priceHistogram");
+        assertEquals(2, histogram.size());
+        assertEquals(new BigDecimal("10.00"), histogram.get(0).get("from"));
+        assertEquals(new BigDecimal("29.99"), histogram.get(1).get("to"));
+        assertEquals(1L, histogram.get(1).get("count"));
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).streamFacetFields(any(BigDecimal.class), any(BigDecimal.class));
+    }
+
+    /**
+     * Runs {@code work} with transaction synchronization active and returns the callbacks it registered,
+     * so a test can play the commit or the rollback.
+     */
+    private static List<TransactionSynchronization> inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package com.ecommerce.legacy.service;
+
+import com.ecommerce.legacy.model.Product;
+import com.ecommerce.legacy.repository.ProductRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hammers a single product from many threads and checks that the conditional
+ * stock decrement never oversells and never loses an update. The timing comparison
+ * with the old read-check-write path is in {@code StockDecrementBenchmarkTest}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jpa.show-sql=false")
+public class ProductStockConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStockConcurrencyTest.class);
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 100;
+    private static final int INITIAL_STOCK = 1000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product testProduct;
+
+    @Before
+    public void setUp() {
+        testProduct = productRepository.save(new Product("Flash Sale Item", "Limited stock",
+                new BigDecimal("9.99"), INITIAL_STOCK, "Electronics", "FLASH-" + System.nanoTime()));
+    }
+
+    @After
+    public void tearDown() {
+        productRepository.deleteById(testProduct.getId());
+    }
+
+    @Test
+    public void testReserveStock_NoOversellUnderContention() throws Exception {
+        final Long productId = testProduct.getId();
+        AtomicInteger successes = new AtomicInteger();
+
+        long elapsedNanos = hammer(() -> {
+            if (productService.reserveStock(productId, 1)) {
+                successes.incrementAndGet();
+            }
+        });
+
+        Product reloaded = productRepository.findById(productId).orElseThrow(IllegalStateException::new);
+        assertEquals(INITIAL_STOCK, successes.get());
+        assertEquals(Integer.valueOf(0), reloaded.getStockQuantity());
+
+        log.info("Conditional decrement: {} ops/sec", opsPerSecond(elapsedNanos));
+    }
+
+    @Test
+    public void testReserveStock_NoLostUpdatesWithMixedQuantities() throws Exception {
+        final Long productId = testProduct.getId();
+        AtomicInteger unitsSold = new AtomicInteger();
+        AtomicInteger attempt = new AtomicInteger();
+
+        // Quantities 1 to 3 ask for about three times the stock, so late attempts race for the last few units
+        hammer(() -> {
+            int quantity = attempt.incrementAndGet() % 3 + 1;
+            if (productService.reserveStock(productId, quantity)) {
+                unitsSold.addAndGet(quantity);
+            }
+        });
+
+        Integer stock = productRepository.findById(productId).orElseThrow(IllegalStateException::new).getStockQuantity();
+        assertTrue("Stock went negative: " + stock, stock >= 0);
+        assertEquals(Integer.valueOf(INITIAL_STOCK - unitsSold.get()), stock);
+    }
+
+    @Test
+    public void testEnableHotStock_WhileSalesRunNeverOversells() throws Exception {
+        final Long productId = testProduct.getId();
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // More attempts than stock, so the product sells out whichever path serves the sales
+                    for (int j = 0; j < ATTEMPTS_PER_THREAD; j++) {
+                        if (productService.reserveStock(productId, 1)) {
+                            sold.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (sold.get() < INITIAL_STOCK / 10) {
+                    Thread.yield();
+                }
+                productService.enableHotStock(productId, 4);
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        productService.disableHotStock(productId);
+
+        Integer stock = productRepository.findById(productId).orElseThrow(IllegalStateException::new).getStockQuantity();
+        assertTrue("Sold " + sold.get() + " of " + INITIAL_STOCK, sold.get() <= INITIAL_STOCK);
+        assertEquals(Integer.valueOf(INITIAL_STOCK - sold.get()), stock);
+    }
+
+    private long hammer(Runnable attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < ATTEMPTS_PER_THREAD; j++) {
+                        attempt.run();
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long opsPerSecond(long elapsedNanos) {
+        return (long) THREADS * ATTEMPTS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.legacy.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ReservationLedgerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private ReservationLedger ledger;
+
+    @Before
+    public void setUp() {
+        ledger = new ReservationLedger(60, now::get);
+    }
+
+    @Test
+    public void testHoldRejectedWhenStockAlreadyHeld() {
+        assertTrue(ledger.hold(1L, 10L, 6, 10));
+        assertFalse(ledger.hold(2L, 10L, 5, 10));
+        assertTrue(ledger.hold(2L, 10L, 4, 10));
+
+        assertEquals(10, ledger.heldQuantity(10L));
+        assertEquals(1L, ledger.getStats().get("rejected"));
+    }
+
+    @Test
+    public void testReleaseOrderFreesEveryProduct() {
+        ledger.hold(1L, 10L, 3, 10);
+        ledger.hold(1L, 11L, 2, 10);
+        ledger.hold(2L, 10L, 1, 10);
+
+        ledger.releaseOrder(1L);
+
+        assertEquals(1, ledger.heldQuantity(10L));
+        assertEquals(0, ledger.heldQuantity(11L));
+        assertEquals(1, ledger.getStats().get("orders"));
+    }
+
+    @Test
+    public void testHoldsExpireAndAreRenewedByNewItems() {
+        ledger.hold(1L, 10L, 3, 10);
+        ledger.hold(2L, 11L, 2, 10);
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(45));
+        ledger.hold(1L, 12L, 1, 10);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(30));
+
+        assertEquals(1, ledger.expire());
+        assertEquals(3, ledger.heldQuantity(10L));
+        assertEquals(0, ledger.heldQuantity(11L));
+        assertEquals(1, ledger.heldQuantity(12L));
+    }
+
+    @Test
+    public void testDrainChangesReportsHeldQuantities() {
+        ledger.hold(1L, 10L, 3, 10);
+        ledger.hold(2L, 11L, 2, 10);
+        ledger.releaseOrder(2L);
+
+        Map<Long, Integer> changes = ledger.drainChanges();
+
+        assertEquals(Integer.valueOf(3), changes.get(10L));
+        assertEquals(Integer.valueOf(0), changes.get(11L));
+        assertTrue(ledger.drainChanges().isEmpty());
+    }
+
+    @Test
+    public void testRestoreCapsHoldsAtStock() {
+        assertEquals(6, ledger.restore(1L, 10L, 6, 10));
+        assertEquals(4, ledger.restore(2L, 10L, 5, 10));
+        assertEquals(0, ledger.restore(3L, 10L, 1, 10));
+
+        assertEquals(10, ledger.heldQuantity(10L));
+        assertEquals(4, ledger.heldQuantity(2L, 10L));
+        assertEquals(0, ledger.heldQuantity(3L, 10L));
+        assertEquals(2, ledger.getStats().get("orders"));
+    }
+}
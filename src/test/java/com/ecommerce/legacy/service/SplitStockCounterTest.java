@@ -0,0 +1,106 @@
+package com.ecommerce.legacy.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SplitStockCounterTest {
+
+    @Test
+    public void testTakeRebalancesWhenCounterDrains() {
+        SplitStockCounter counter = new SplitStockCounter(4, 10);
+
+        // No single counter holds 7 units, so this take must pool them
+        assertTrue(counter.tryTake(7));
+        assertEquals(3, counter.total());
+        assertFalse(counter.tryTake(4));
+        assertEquals(3, counter.total());
+        assertEquals(2L, counter.getStats().get("rebalances"));
+    }
+
+    @Test
+    public void testArmingCounterRefusesUntilOpened() {
+        SplitStockCounter counter = SplitStockCounter.arming(4);
+
+        assertFalse(counter.tryTake(1));
+        assertFalse(counter.giveBack(1));
+        assertEquals(0, counter.reconcile(delta -> fail("Nothing to reconcile before opening")));
+
+        counter.open(10);
+        assertTrue(counter.tryTake(3));
+        assertEquals(-3, counter.reconcile(delta -> { }));
+        assertEquals(7, counter.total());
+    }
+
+    @Test
+    public void testConcurrentTakesNeverOversell() throws Exception {
+        int threads = 8;
+        SplitStockCounter counter = new SplitStockCounter(4, 1000);
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 500; j++) {
+                        if (counter.tryTake(1 + j % 3)) {
+                            sold.addAndGet(1 + j % 3);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000, sold.get() + counter.total());
+        assertTrue(counter.total() < 3);
+    }
+
+    @Test
+    public void testReconcileReportsNetChangeAndSurvivesFailedWrite() {
+        SplitStockCounter counter = new SplitStockCounter(2, 20);
+        counter.tryTake(5);
+
+        try {
+            counter.reconcile(delta -> {
+                throw new IllegalStateException("database unavailable");
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("database unavailable", e.getMessage());
+        }
+        counter.giveBack(2);
+
+        assertEquals(-3, counter.reconcile(delta -> { }));
+        assertEquals(0, counter.reconcile(delta -> { }));
+    }
+
+    @Test
+    public void testClosedCounterRefusesTakesAndKeepsFinalStock() {
+        SplitStockCounter counter = new SplitStockCounter(3, 9);
+        counter.tryTake(4);
+        counter.close();
+
+        assertFalse(counter.tryTake(1));
+        assertFalse(counter.giveBack(1));
+        assertEquals(5, counter.total());
+        assertEquals(-4, counter.reconcile(delta -> { }));
+    }
+}